@@ -13,6 +13,11 @@ import java.util.List;
  */
 public final class SLConfig {
 
+    /**
+     * アリーナワールドの区画の間隔の下限 (ブロック)
+     */
+    private static final int MIN_ARENA_SLOT_SPACING = 256;
+
     private SLConfig() {
         throw new AssertionError();
     }
@@ -63,6 +68,168 @@ public final class SLConfig {
         return Triple.of(pos.get(0), pos.get(1), pos.get(2));
     }
 
+    /**
+     * 読み込み済みマップワールドのプールが有効かどうか
+     *
+     * @return 有効であればtrue、でなければfalse
+     */
+    public static boolean isMapPoolEnabled() {
+        return getConfig().getBoolean("match.map-pool.enable");
+    }
+
+    /**
+     * マップごとにプールで保持する読み込み済みワールドの最大数
+     *
+     * @return 最大数
+     */
+    public static int getMapPoolMaxSizePerMap() {
+        return Math.max(getConfig().getInt("match.map-pool.max-size-per-map"), 0);
+    }
+
+    /**
+     * 読み込み済みスケマティックのキャッシュに保持するブロック数の上限
+     *
+     * @return ブロック数
+     */
+    public static long getClipboardCacheMaxBlocks() {
+        return Math.max(getConfig().getLong("match.map-load.clipboard-cache-max-blocks"), 0);
+    }
+
+    /**
+     * 構造物生成に1Tickで使用できる時間の上限
+     *
+     * @return 時間 (ms)
+     */
+    public static double getSchematicPasteBudget() {
+        return Math.max(getConfig().getDouble("match.map-load.paste-budget-ms"), 0d);
+    }
+
+    /**
+     * 同時に読み込む試合用マップの最大数
+     *
+     * @return 最大数
+     */
+    public static int getMapLoadMaxConcurrent() {
+        return Math.max(getConfig().getInt("match.map-load.max-concurrent-loads"), 1);
+    }
+
+    /**
+     * スケマティックを変換済みの独自形式で読み込むかどうか
+     *
+     * @return 変換済みの形式を使用するかどうか
+     */
+    public static boolean isCompiledSchematicEnabled() {
+        return getConfig().getBoolean("match.map-load.compiled-schematic");
+    }
+
+    /**
+     * 敵がいないことを優先するスポーン地点からの距離
+     *
+     * @return 距離 (ブロック)
+     */
+    public static double getSpawnSafeDistance() {
+        return Math.max(getConfig().getDouble("match.spawn.safe-distance"), 0d);
+    }
+
+    /**
+     * 1回のスポーン地点の選択で、敵から見えるかどうかを確認する最大数
+     *
+     * @return 最大数
+     */
+    public static int getSpawnLineOfSightChecks() {
+        return Math.max(getConfig().getInt("match.spawn.line-of-sight-checks"), 0);
+    }
+
+    /**
+     * マップ投票中に先行読み込みを行うかどうか
+     *
+     * @return 先行読み込みを行うかどうか
+     */
+    public static boolean isMapPreloadEnabled() {
+        return getConfig().getBoolean("match.map-preload.enable");
+    }
+
+    /**
+     * マップ投票中に次点のマップも先行読み込みするかどうか
+     *
+     * @return 次点のマップも先行読み込みするかどうか
+     */
+    public static boolean isMapPreloadRunnerUp() {
+        return getConfig().getBoolean("match.map-preload.runner-up");
+    }
+
+    /**
+     * 事前生成済みマップを使用するかどうか
+     *
+     * @return 使用する場合はtrue
+     */
+    public static boolean isMapBakeEnabled() {
+        return getConfig().getBoolean("match.map-bake.enable");
+    }
+
+    /**
+     * 起動時に事前生成されていないマップを事前生成するかどうか
+     *
+     * @return 事前生成する場合はtrue
+     */
+    public static boolean isMapAutoBake() {
+        return getConfig().getBoolean("match.map-bake.auto-bake");
+    }
+
+    /**
+     * 試合用ワールドフォルダーの複製と削除で1秒間にコピーするバイト数の上限
+     *
+     * @return バイト数、0以下の場合は制限しない
+     */
+    public static long getWorldIoMaxBytesPerSecond() {
+        return (long) (getConfig().getDouble("match.world-io.max-megabytes-per-second") * 1024 * 1024);
+    }
+
+    /**
+     * 試合用ワールドフォルダーの複製と削除で1秒間に行う操作(ファイルの作成、削除、移動)の回数の上限
+     *
+     * @return 回数、0以下の場合は制限しない
+     */
+    public static double getWorldIoMaxOpsPerSecond() {
+        return getConfig().getDouble("match.world-io.max-operations-per-second");
+    }
+
+    /**
+     * マップファイルの変更を監視して再読み込みするかどうか
+     *
+     * @return 監視するかどうか
+     */
+    public static boolean isMapReloadWatch() {
+        return getConfig().getBoolean("match.map-reload.watch");
+    }
+
+    /**
+     * 共有するアリーナワールドの区画に試合用マップを読み込むかどうか
+     *
+     * @return アリーナを使用する場合はtrue
+     */
+    public static boolean isArenaEnabled() {
+        return getConfig().getBoolean("match.arena.enable");
+    }
+
+    /**
+     * アリーナワールドの区画の間隔 (ブロック)
+     *
+     * @return 区画の間隔
+     */
+    public static int getArenaSlotSpacing() {
+        return Math.max(getConfig().getInt("match.arena.slot-spacing"), MIN_ARENA_SLOT_SPACING);
+    }
+
+    /**
+     * 正常に終了した試合のマップワールドを、元に戻して次の試合で使用するかどうか
+     *
+     * @return 使用する場合はtrue
+     */
+    public static boolean isMapResetEnabled() {
+        return getConfig().getBoolean("match.map-reset.enable");
+    }
+
     private static FileConfiguration getConfig() {
         return SLUtils.getSLPlugin().getConfig();
     }
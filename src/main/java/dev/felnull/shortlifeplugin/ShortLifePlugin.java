@@ -82,6 +82,7 @@ public final class ShortLifePlugin extends JavaPlugin {
     private void initEventListeners() {
         CommonListener.init(this);
         MatchListener.init(this);
+        MatchMapBlockChangeListener.init(this);
         EquipmentGroupListener.init(this);
         WeaponMechanicsListener.init(this);
         PlayerInventoryListener.init(this);
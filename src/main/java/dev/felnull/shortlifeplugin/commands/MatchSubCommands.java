@@ -5,8 +5,15 @@ import dev.felnull.shortlifeplugin.match.Match;
 import dev.felnull.shortlifeplugin.match.MatchManager;
 import dev.felnull.shortlifeplugin.match.MatchMode;
 import dev.felnull.shortlifeplugin.match.MatchStatus;
+import dev.felnull.shortlifeplugin.match.map.MapLoadExecutors;
+import dev.felnull.shortlifeplugin.match.map.MapLoadMetrics;
+import dev.felnull.shortlifeplugin.match.map.MapLoadStage;
+import dev.felnull.shortlifeplugin.match.map.MatchChunkGeneratorBenchmark;
 import dev.felnull.shortlifeplugin.match.map.MatchMap;
+import dev.felnull.shortlifeplugin.match.map.MatchMapBaker;
 import dev.felnull.shortlifeplugin.match.map.MatchMapHandler;
+import dev.felnull.shortlifeplugin.utils.SLFiles;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
 import dev.jorel.commandapi.CommandAPICommand;
 import dev.jorel.commandapi.arguments.*;
 import dev.jorel.commandapi.executors.CommandArguments;
@@ -15,10 +22,15 @@ import net.kyori.adventure.text.Component;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * 試合サブコマンド
@@ -85,9 +97,25 @@ public enum MatchSubCommands {
                     .executes((CommandExecutor) (sender, args) -> mapList(sender))
                     .withSubcommands(new CommandAPICommand("info")
                             .withArguments(mapArgument())
-                            .executes(MatchSubCommands::mapInfo))));
+                            .executes(MatchSubCommands::mapInfo)))
+            .withSubcommands(new CommandAPICommand("bake")
+                    .withOptionalArguments(mapArgument())
+                    .executes(MatchSubCommands::mapBake))
+            .withSubcommands(new CommandAPICommand("stats")
+                    .withOptionalArguments(mapArgument())
+                    .executes(MatchSubCommands::mapStats)
+                    .withSubcommands(new CommandAPICommand("dump")
+                            .executes((CommandExecutor) (sender, args) -> mapStatsDump(sender))))
+            .withSubcommands(new CommandAPICommand("generator-benchmark")
+                    .withOptionalArguments(new IntegerArgument("chunks", 1, 4096))
+                    .executes(MatchSubCommands::mapGeneratorBenchmark)));
 
 
+    /**
+     * ジェネレーターの計測でチャンク数の指定が無い場合のチャンク数
+     */
+    private static final int DEFAULT_BENCHMARK_CHUNK_COUNT = 256;
+
     /**
      * サブコマンド本体
      */
@@ -357,4 +385,101 @@ public enum MatchSubCommands {
         sender.sendRichMessage(MsgHandler.get("cmd-match-map-offset") + String.format("[%s, %s, %s]", map.offset().getX(), map.offset().getY(), map.offset().getZ()));
         sender.sendRichMessage(MsgHandler.get("cmd-match-map-available") + availableMatchModesText);
     }
-}
\ No newline at end of file
+
+    private static void mapBake(CommandSender sender, CommandArguments args) {
+        MatchMapHandler mapHandler = MatchManager.getInstance().getMapHandler();
+        MatchMapBaker mapBaker = mapHandler.getMapBaker();
+
+        if (mapBaker.isBaking()) {
+            sender.sendRichMessage(MsgHandler.get("cmd-match-map-bake-busy"));
+            return;
+        }
+
+        // マップの指定が無い場合は全てのマップを事前生成
+        Collection<MatchMap> maps = args.getOptional("map")
+                .<Collection<MatchMap>>map(map -> List.of((MatchMap) map))
+                .orElseGet(() -> mapHandler.getAllMap().values());
+
+        sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-bake-started", maps.size()));
+        mapBaker.bake(maps, true)
+                .thenAccept(bakedCount -> sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-bake-finished", bakedCount)));
+    }
+
+    private static void mapStats(CommandSender sender, CommandArguments args) {
+        MatchMapHandler mapHandler = MatchManager.getInstance().getMapHandler();
+        MapLoadMetrics loadMetrics = mapHandler.getLoadMetrics();
+        Map<String, MapLoadMetrics.MapStats> allStats = loadMetrics.getAllStats();
+        Optional<Object> map = args.getOptional("map");
+
+        if (map.isPresent()) {
+            // マップの指定がある場合は段階ごとに表示
+            MatchMap matchMap = (MatchMap) map.get();
+            MapLoadMetrics.MapStats stats = allStats.get(matchMap.id());
+
+            if (stats == null) {
+                sender.sendRichMessage(MsgHandler.get("cmd-match-map-stats-empty"));
+                return;
+            }
+
+            sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-stats-info", matchMap.id(), stats.getLoadCount(), stats.getFailureCount()));
+            for (MapLoadStage stage : MapLoadStage.values()) {
+                if (stats.getSampleCount(stage) > 0) {
+                    sender.sendMessage(Component.text(String.format("- %s: %s", stage.getName(), formatPercentiles(stats, stage))));
+                }
+            }
+        } else if (allStats.isEmpty()) {
+            sender.sendRichMessage(MsgHandler.get("cmd-match-map-stats-empty"));
+        } else {
+            sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-stats-count", allStats.size()));
+            allStats.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> sender.sendMessage(Component.text(String.format("- %s (%d/%d): %s", entry.getKey(),
+                            entry.getValue().getLoadCount(), entry.getValue().getFailureCount(), formatPercentiles(entry.getValue(), MapLoadStage.TOTAL)))));
+        }
+
+        // 読み込み用Executorの待機状況
+        MapLoadExecutors loadExecutors = mapHandler.getLoadExecutors();
+        MapLoadExecutors.MeteredExecutor ioExecutor = loadExecutors.getIoExecutor();
+        MapLoadExecutors.MeteredExecutor cpuExecutor = loadExecutors.getCpuExecutor();
+        sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-stats-executors",
+                loadExecutors.isVirtualThreadIo() ? "virtual" : "platform",
+                ioExecutor.getQueuedCount(), ioExecutor.getMaxQueuedCount(), ioExecutor.getActiveCount(),
+                cpuExecutor.getQueuedCount(), cpuExecutor.getMaxQueuedCount(), cpuExecutor.getActiveCount()));
+    }
+
+    private static void mapStatsDump(CommandSender sender) {
+        MapLoadMetrics loadMetrics = MatchManager.getInstance().getMapHandler().getLoadMetrics();
+        File dumpFile = SLFiles.mapLoadMetricsJson();
+
+        try {
+            loadMetrics.dump(dumpFile);
+            sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-stats-dumped", dumpFile.getPath()));
+        } catch (IOException e) {
+            sender.sendRichMessage(MsgHandler.get("cmd-match-map-stats-dump-failed"));
+            SLUtils.reportError(e, MsgHandler.get("cmd-match-map-stats-dump-failed"));
+        }
+    }
+
+    private static void mapGeneratorBenchmark(CommandSender sender, CommandArguments args) {
+        int chunkCount = (int) args.getOptional("chunks").orElse(DEFAULT_BENCHMARK_CHUNK_COUNT);
+
+        sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-generator-benchmark-started", chunkCount));
+        List<MatchChunkGeneratorBenchmark.Result> results = MatchManager.getInstance().getMapHandler().benchmarkChunkGenerator(chunkCount);
+
+        results.forEach(result -> sender.sendRichMessage(MsgHandler.getFormatted("cmd-match-map-generator-benchmark-result",
+                result.name(), result.createNanos() / 1_000_000d, result.getNanosPerChunk() / 1_000_000d)));
+    }
+
+    /**
+     * 段階の処理時間のパーセンタイルを表示用の文字列にする
+     *
+     * @param stats 統計
+     * @param stage 段階
+     * @return 表示用の文字列
+     */
+    private static String formatPercentiles(MapLoadMetrics.MapStats stats, MapLoadStage stage) {
+        return String.join(" / ", Arrays.stream(MapLoadMetrics.getPercentiles())
+                .mapToObj(percentile -> String.format("%.1fms", stats.getPercentile(stage, percentile) / 1_000_000d))
+                .toList());
+    }
+}
@@ -16,6 +16,7 @@ import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.Style;
 import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
@@ -27,6 +28,7 @@ import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.map.MinecraftFont;
 import org.bukkit.util.BoundingBox;
@@ -280,16 +282,47 @@ public class CommonListener implements Listener {
             return;
         }
 
-        MatchManager matchManager = MatchManager.getInstance();
         // 移動先のワールドで試合が行われている場合
-        matchManager.getMatchByWorld(toWorld).ifPresent(worldMatch -> {
+        MatchManager.getInstance().getMatchByLocation(player.getLocation()).ifPresent(worldMatch -> onEnterMatch(player, worldMatch));
+    }
 
-            // プレイヤーが未参加または、参加している試合が世界の試合と一致しない場合
-            if (matchManager.getJoinedMatch(player).stream().noneMatch(match -> match == worldMatch)) {
-                sendUnexpectedMatchJoinMessage(player, worldMatch);
-            }
-            //銃をリロード
-            WeaponMechanicsUtils.reloadAllWeapons(player);
-        });
+    /**
+     * プレイヤーが同じワールド内でテレポートした際の処理<br/>
+     * アリーナワールドでは全ての試合が同じワールドで行われるため、別の試合の区画への移動はワールドの変更として検知できない
+     *
+     * @param e プレイヤーテレポートイベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent e) {
+        Location fromLocation = e.getFrom();
+        Location toLocation = e.getTo();
+
+        // ワールド間の移動はワールド変更時に処理する
+        if (fromLocation.getWorld() != toLocation.getWorld()) {
+            return;
+        }
+
+        MatchManager matchManager = MatchManager.getInstance();
+        Match fromMatch = matchManager.getMatchByLocation(fromLocation).orElse(null);
+
+        // 移動先の区画で、移動元とは別の試合が行われている場合
+        matchManager.getMatchByLocation(toLocation)
+                .filter(toMatch -> toMatch != fromMatch)
+                .ifPresent(toMatch -> onEnterMatch(e.getPlayer(), toMatch));
+    }
+
+    /**
+     * プレイヤーが試合の行われている場所へ移動した際の処理
+     *
+     * @param player     プレイヤー
+     * @param worldMatch 移動先の試合
+     */
+    private static void onEnterMatch(Player player, Match worldMatch) {
+        // プレイヤーが未参加または、参加している試合が移動先の試合と一致しない場合
+        if (MatchManager.getInstance().getJoinedMatch(player).stream().noneMatch(match -> match == worldMatch)) {
+            sendUnexpectedMatchJoinMessage(player, worldMatch);
+        }
+        //銃をリロード
+        WeaponMechanicsUtils.reloadAllWeapons(player);
     }
 }
@@ -1,6 +1,7 @@
 package dev.felnull.shortlifeplugin.listener;
 
 import dev.felnull.shortlifeplugin.ShortLifePlugin;
+import dev.felnull.shortlifeplugin.match.Match;
 import dev.felnull.shortlifeplugin.match.MatchManager;
 import dev.felnull.shortlifeplugin.match.MatchStatus;
 import dev.felnull.shortlifeplugin.utils.MatchUtils;
@@ -16,6 +17,7 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * 試合用イベントリスナー
@@ -110,16 +112,21 @@ public final class MatchListener implements Listener {
     }
 
     /**
-     * 試合に参加してないプレイヤーが、試合ワールドに参加した場合に強制退出
+     * 試合に参加してないプレイヤーが、試合ワールドに参加した場合に強制退出<br/>
+     * アリーナワールドでは、試合が行われていない区画に参加した場合も強制退出
      *
      * @param e イベント
      */
     private static void validateJoinedWorld(PlayerJoinEvent e) {
         MatchManager matchManager = MatchManager.getInstance();
+        Player player = e.getPlayer();
+        Optional<Match> worldMatch = matchManager.getMatchByLocation(player.getLocation());
 
-        matchManager.getMatchByWorld(e.getPlayer().getWorld()).ifPresent(worldMatch -> {
-            MatchUtils.teleportToLeave(e.getPlayer(), worldMatch.getMatchMapInstance().getStrictWorld());
-        });
+        if (worldMatch.isPresent()) {
+            MatchUtils.teleportToLeave(player, worldMatch.get().getMatchMapInstance().getStrictWorld());
+        } else if (matchManager.getMapHandler().isArenaWorld(player.getWorld())) {
+            MatchUtils.teleportToLeave(player, Optional.of(player.getWorld()));
+        }
     }
 
     /**
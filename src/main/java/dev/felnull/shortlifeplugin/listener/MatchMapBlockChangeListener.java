@@ -0,0 +1,198 @@
+package dev.felnull.shortlifeplugin.listener;
+
+import dev.felnull.shortlifeplugin.ShortLifePlugin;
+import dev.felnull.shortlifeplugin.match.Match;
+import dev.felnull.shortlifeplugin.match.MatchManager;
+import dev.felnull.shortlifeplugin.match.map.MatchMapHandler;
+import org.bukkit.Bukkit;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import java.util.List;
+
+/**
+ * 試合用ワールドのブロックの変更を記録するイベントリスナー<br/>
+ * 試合終了後にワールドを使い回す際、記録したブロックを元に戻す
+ *
+ * @author MORIMORI0317
+ */
+public final class MatchMapBlockChangeListener implements Listener {
+
+    /**
+     * 初期化
+     *
+     * @param plugin プラグイン
+     */
+    public static void init(ShortLifePlugin plugin) {
+        Bukkit.getServer().getPluginManager().registerEvents(new MatchMapBlockChangeListener(), plugin);
+    }
+
+    /**
+     * ブロックが破壊された際の処理
+     *
+     * @param e ブロック破壊イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent e) {
+        recordBlockChange(e.getBlock());
+    }
+
+    /**
+     * ブロックが設置された際の処理
+     *
+     * @param e ブロック設置イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent e) {
+        recordBlockChange(e.getBlockReplacedState());
+    }
+
+    /**
+     * ブロックが燃えた際の処理
+     *
+     * @param e ブロック燃焼イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent e) {
+        recordBlockChange(e.getBlock());
+    }
+
+    /**
+     * ブロックに着火した際の処理
+     *
+     * @param e ブロック着火イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockIgnite(BlockIgniteEvent e) {
+        recordBlockChange(e.getBlock());
+    }
+
+    /**
+     * ブロックが消えた際の処理
+     *
+     * @param e ブロック消失イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent e) {
+        recordBlockChange(e.getBlock());
+    }
+
+    /**
+     * ブロックが形成、拡散した際の処理
+     *
+     * @param e ブロック形成イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent e) {
+        recordBlockChange(e.getBlock());
+    }
+
+    /**
+     * 液体が流れた際の処理
+     *
+     * @param e 液体の流れイベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent e) {
+        recordBlockChange(e.getToBlock());
+    }
+
+    /**
+     * ブロックが爆発した際の処理
+     *
+     * @param e ブロック爆発イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent e) {
+        recordBlockChange(e.getBlock());
+        e.blockList().forEach(MatchMapBlockChangeListener::recordBlockChange);
+    }
+
+    /**
+     * エンティティが爆発した際の処理
+     *
+     * @param e エンティティ爆発イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent e) {
+        e.blockList().forEach(MatchMapBlockChangeListener::recordBlockChange);
+    }
+
+    /**
+     * エンティティがブロックを変更した際の処理
+     *
+     * @param e エンティティのブロック変更イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent e) {
+        recordBlockChange(e.getBlock());
+    }
+
+    /**
+     * ピストンが伸びた際の処理
+     *
+     * @param e ピストン伸長イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent e) {
+        recordPistonChange(e.getBlock(), e.getBlocks(), e.getDirection());
+    }
+
+    /**
+     * ピストンが縮んだ際の処理
+     *
+     * @param e ピストン収縮イベント
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent e) {
+        recordPistonChange(e.getBlock(), e.getBlocks(), e.getDirection());
+    }
+
+    /**
+     * ピストンで動かされるブロックと、移動先のブロックの変更を記録する
+     *
+     * @param piston    ピストン
+     * @param blocks    動かされるブロック
+     * @param direction 動かす方向
+     */
+    private static void recordPistonChange(Block piston, List<Block> blocks, BlockFace direction) {
+        recordBlockChange(piston.getRelative(direction));
+
+        for (Block block : blocks) {
+            recordBlockChange(block);
+            recordBlockChange(block.getRelative(direction));
+        }
+    }
+
+    private static void recordBlockChange(Block block) {
+        if (isMatchWorld(block)) {
+            recordBlockChange(block.getState());
+        }
+    }
+
+    /**
+     * 試合用ワールドのブロックであれば、そのワールドを使用している試合のマップインスタンスへ変更を記録する
+     *
+     * @param blockState 変更される前のブロックの状態
+     */
+    private static void recordBlockChange(BlockState blockState) {
+        if (!isMatchWorld(blockState.getBlock())) {
+            return;
+        }
+
+        MatchManager.getInstance().getMatchByLocation(blockState.getLocation())
+                .map(Match::getMatchMapInstance)
+                .ifPresent(matchMapInstance -> matchMapInstance.recordBlockChange(blockState));
+    }
+
+    private static boolean isMatchWorld(Block block) {
+        return block.getWorld().getName().startsWith(MatchMapHandler.WORLD_NAME_PREFIX);
+    }
+}
@@ -1,7 +1,7 @@
 package dev.felnull.shortlifeplugin.match;
 
-import dev.felnull.shortlifeplugin.match.map.MapMarker;
 import dev.felnull.shortlifeplugin.match.map.MapMarkerPoints;
+import dev.felnull.shortlifeplugin.match.map.MapSpawnTable;
 import dev.felnull.shortlifeplugin.match.map.MatchMapWorld;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.text.Component;
@@ -75,7 +75,7 @@ public class FFAMatch extends PVPBaseMatch {
 
 
     @Override
-    protected Optional<MapMarker> getSpawnMaker(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player) {
-        return matchMapWorld.getMakerRandom(MapMarkerPoints.SPAWN.get());
+    protected Optional<MapSpawnTable> getSpawnTable(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player) {
+        return matchMapWorld.getSpawnTable(MapMarkerPoints.SPAWN.get());
     }
 }
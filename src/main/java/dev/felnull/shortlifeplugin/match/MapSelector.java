@@ -1,8 +1,11 @@
 package dev.felnull.shortlifeplugin.match;
 
 import com.google.common.collect.ImmutableList;
+import dev.felnull.shortlifeplugin.SLConfig;
 import dev.felnull.shortlifeplugin.match.map.MatchMap;
+import dev.felnull.shortlifeplugin.match.map.MatchMapCatalog;
 import dev.felnull.shortlifeplugin.match.map.MatchMapHandler;
+import dev.felnull.shortlifeplugin.match.map.MatchMapInstance;
 import dev.felnull.shortlifeplugin.utils.SLUtils;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
@@ -35,6 +38,11 @@ public class MapSelector {
      */
     private static final int MAX_SELECTABLE_MAP_SIZE = 4;
 
+    /**
+     * 先行読み込みするマップを見直す周期Tick
+     */
+    private static final int PRELOAD_CHECK_INTERVAL_TICK = 20;
+
     /**
      * このマップ選択が対象の試合
      */
@@ -60,6 +68,24 @@ public class MapSelector {
      */
     private int deadlineTime = -1;
 
+    /**
+     * 投票中に先行して読み込んでいるマップIDとマップインスタンス<br/>
+     * 投票中にマップが再読み込みされても引き継げるように、IDで管理する
+     */
+    private final Map<String, MatchMapInstance> preloadInstances = new HashMap<>();
+
+    /**
+     * 選定されたマップの先行読み込み済みマップインスタンス<br/>
+     * 存在しない場合、もしくは試合に引き渡し済みの場合はnull
+     */
+    @Nullable
+    private MatchMapInstance selectedPreloadInstance;
+
+    /**
+     * 先行読み込みするマップを見直すまでの残りTick
+     */
+    private int preloadCheckRemainingTick;
+
     /**
      * コンストラクタ
      *
@@ -106,6 +132,21 @@ public class MapSelector {
 
             // マップ決定
             this.selectedMatchMap = lottedMatchMap;
+
+            // 選ばれたマップの先行読み込みのみ残し、それ以外はプールへ戻す
+            this.selectedPreloadInstance = this.preloadInstances.remove(lottedMatchMap.id());
+            recyclePreloadInstances();
+
+            // 読み込み後にマップの内容が変わった場合は、改めて読み込む
+            if (this.selectedPreloadInstance != null && !this.selectedPreloadInstance.getMatchMap().equals(lottedMatchMap)) {
+                MatchManager.getInstance().getMapHandler().recycleMapInstance(this.selectedPreloadInstance, this.match.getMatchMode());
+                this.selectedPreloadInstance = null;
+            }
+        } else if (this.deadlineTime > 0) {
+            updatePreload();
+        } else if (!this.preloadInstances.isEmpty()) {
+            /* 投票が中断された場合 */
+            recyclePreloadInstances();
         }
 
         // スコアボード更新処理
@@ -127,53 +168,116 @@ public class MapSelector {
     }
 
     /**
-     * 選択肢に表示するマップを抽選する
+     * 選定されたマップの先行読み込み済みマップインスタンスを取り出す
      *
-     * @return 選択肢のマップリスト
+     * @return オプショナルなマップインスタンス
      */
-    private List<MatchMap> lotterySelectableMaps() {
-        MatchManager matchManager = MatchManager.getInstance();
-        MatchMapHandler mapHandler = matchManager.getMapHandler();
-        List<MatchMap> maps = mapHandler.getAvailableMaps(this.match.getMatchMode());
+    protected Optional<MatchMapInstance> takeSelectedPreloadInstance() {
+        MatchMapInstance instance = this.selectedPreloadInstance;
+        this.selectedPreloadInstance = null;
+
+        // 先行読み込みに失敗していた場合は、改めて読み込む
+        if (instance != null && instance.isLoadFailed()) {
+            instance.dispose();
+            return Optional.empty();
+        }
 
-        if (maps.size() <= MAX_SELECTABLE_MAP_SIZE) {
-            /* 選択可能なマップ数が最大数より少ない場合 */
-            return maps;
-        } else {
-            List<MatchMap> selectables = new ArrayList<>(maps);
-            List<MatchMap> ret = new LinkedList<>();
-            for (int i = 0; i < MAX_SELECTABLE_MAP_SIZE; i++) {
-                int selectedIndex = RANDOM.nextInt(selectables.size());
-                ret.add(selectables.get(selectedIndex));
-                selectables.remove(selectedIndex);
+        return Optional.ofNullable(instance);
+    }
+
+    /**
+     * 破棄処理<br/>
+     * 試合に引き渡していない先行読み込みのマップインスタンスを破棄する
+     */
+    protected void dispose() {
+        this.preloadInstances.values().forEach(MatchMapInstance::dispose);
+        this.preloadInstances.clear();
+
+        if (this.selectedPreloadInstance != null) {
+            this.selectedPreloadInstance.dispose();
+            this.selectedPreloadInstance = null;
+        }
+    }
+
+    /**
+     * 投票状況から、先行して読み込むマップを見直す<br/>
+     * 最多得票のマップ(設定によっては次点のマップも)を読み込み、対象から外れたマップはプールへ戻す
+     */
+    private void updatePreload() {
+        if (this.preloadCheckRemainingTick > 0) {
+            this.preloadCheckRemainingTick--;
+            return;
+        }
+        this.preloadCheckRemainingTick = PRELOAD_CHECK_INTERVAL_TICK;
+
+        if (!SLConfig.isMapPreloadEnabled()) {
+            return;
+        }
+
+        MatchMapHandler mapHandler = MatchManager.getInstance().getMapHandler();
+        Map<MatchMap, Long> votedMaps = countVotes(mapHandler.getCatalog());
+
+        // 得票数の多い順に並べ、同数の場合は選択肢の順
+        List<String> selectableIds = this.selectableMaps != null ? this.selectableMaps.stream().map(MatchMap::id).toList() : List.of();
+        Map<String, MatchMap> preloadMaps = votedMaps.entrySet().stream()
+                .sorted(Map.Entry.<MatchMap, Long>comparingByValue().reversed()
+                        .thenComparingInt(entry -> selectableIds.indexOf(entry.getKey().id())))
+                .limit(SLConfig.isMapPreloadRunnerUp() ? 2 : 1)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toMap(MatchMap::id, Function.identity()));
+
+        // 対象から外れたマップインスタンスと、読み込み後にマップの内容が変わったマップインスタンスはプールへ戻す
+        Iterator<Map.Entry<String, MatchMapInstance>> iterator = this.preloadInstances.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, MatchMapInstance> entry = iterator.next();
+            MatchMap preloadMap = preloadMaps.get(entry.getKey());
+
+            if (preloadMap == null || !preloadMap.equals(entry.getValue().getMatchMap()) || entry.getValue().isLoadFailed()) {
+                mapHandler.recycleMapInstance(entry.getValue(), this.match.getMatchMode());
+                iterator.remove();
+            }
+        }
+
+        for (MatchMap preloadMap : preloadMaps.values()) {
+            if (!this.preloadInstances.containsKey(preloadMap.id())) {
+                this.preloadInstances.put(preloadMap.id(), mapHandler.createPreloadMapInstance(this.match, preloadMap));
             }
-            return ret;
         }
     }
 
+    /**
+     * 先行読み込み中のマップインスタンスを全てプールへ戻す
+     */
+    private void recyclePreloadInstances() {
+        MatchMapHandler mapHandler = MatchManager.getInstance().getMapHandler();
+        this.preloadInstances.values().forEach(instance -> mapHandler.recycleMapInstance(instance, this.match.getMatchMode()));
+        this.preloadInstances.clear();
+    }
+
+    /**
+     * 選択肢に表示するマップを抽選する
+     *
+     * @return 選択肢のマップリスト
+     */
+    private List<MatchMap> lotterySelectableMaps() {
+        MatchMapCatalog catalog = MatchManager.getInstance().getMapHandler().getCatalog();
+        return catalog.getRandomMaps(this.match.getMatchMode(), MAX_SELECTABLE_MAP_SIZE, RANDOM);
+    }
+
     /**
      * マップ抽選処理
      *
      * @return 選ばれたマップ
      */
     private MatchMap lotteryMatchMap() {
-        MatchManager matchManager = MatchManager.getInstance();
-        MatchMapHandler mapHandler = matchManager.getMapHandler();
-        List<MatchMap> maps = mapHandler.getAvailableMaps(this.match.getMatchMode());
-
-        Map<Player, PlayerInfo> players = this.match.players;
+        MatchMapCatalog catalog = MatchManager.getInstance().getMapHandler().getCatalog();
 
         // 投票されたマップリスト
-        Map<MatchMap, Long> votedMaps = players.values().stream()
-                .map(PlayerInfo::getMapSelectorInfo)
-                .filter(mapSelectorInfo -> mapSelectorInfo.votedMatchMap != null)
-                .map(mapSelectorInfo -> mapSelectorInfo.votedMatchMap)
-                .filter(maps::contains)
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        Map<MatchMap, Long> votedMaps = countVotes(catalog);
 
         if (votedMaps.isEmpty()) {
             /* 全員未投票の場合 */
-            return getRandomMap(maps);
+            return catalog.getRandomMap(this.match.getMatchMode(), RANDOM).orElse(null);
         } else {
             long maxVoteCount = Collections.max(votedMaps.values());
             List<MatchMap> maxVoteMaps = votedMaps.entrySet().stream()
@@ -191,6 +295,24 @@ public class MapSelector {
         }
     }
 
+    /**
+     * マップごとの得票数を集計する<br/>
+     * 投票はマップIDで照合し、投票後にマップが再読み込みされた場合でも現在の一覧のマップとして集計する
+     *
+     * @param catalog 集計対象のマップの一覧
+     * @return 現在の一覧のマップと得票数のマップ(投票されていないマップは含まない)
+     */
+    private Map<MatchMap, Long> countVotes(MatchMapCatalog catalog) {
+        Map<Player, PlayerInfo> players = this.match.players;
+
+        return players.values().stream()
+                .map(PlayerInfo::getMapSelectorInfo)
+                .filter(mapSelectorInfo -> mapSelectorInfo.votedMatchMap != null)
+                .map(mapSelectorInfo -> mapSelectorInfo.votedMatchMap)
+                .flatMap(votedMatchMap -> catalog.getAvailableMap(this.match.getMatchMode(), votedMatchMap.id()).stream())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+
     private MatchMap getRandomMap(List<MatchMap> maps) {
         if (maps.isEmpty()) {
             return null;
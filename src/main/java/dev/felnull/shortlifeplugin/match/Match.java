@@ -1,8 +1,8 @@
 package dev.felnull.shortlifeplugin.match;
 
 import com.google.common.collect.ImmutableList;
-import com.sk89q.worldedit.math.BlockVector3;
 import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.SLConfig;
 import dev.felnull.shortlifeplugin.gui.KariMapSelectGui;
 import dev.felnull.shortlifeplugin.match.map.*;
 import dev.felnull.shortlifeplugin.utils.MatchUtils;
@@ -17,6 +17,7 @@ import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.title.Title;
 import org.bukkit.Bukkit;
+import org.bukkit.FluidCollisionMode;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -27,6 +28,7 @@ import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
@@ -69,6 +71,12 @@ public abstract class Match {
      */
     private static final long START_WAIT_TIME = 1000 * 10;
 
+    /**
+     * 試合開始のカウントダウンが終わる直前のマップ読み込みの優先度の加算値<br/>
+     * 待機しているプレイヤー数に加算するため、この人数分の差を覆す
+     */
+    private static final double MAP_LOAD_COUNTDOWN_PRIORITY = 10d;
+
     /**
      * 試合終了から破棄されるまでの時間(ms)
      */
@@ -84,6 +92,11 @@ public abstract class Match {
      */
     private static final String TIME_DISPLAY_NONE_TEXT = "--:--";
 
+    /**
+     * スポーン地点が敵から見えるか確認する際のプレイヤーの目の高さ
+     */
+    private static final double PLAYER_EYE_HEIGHT = 1.62d;
+
     /**
      * マップ投票中の状態テキスト
      */
@@ -99,6 +112,12 @@ public abstract class Match {
      */
     protected int statusTick;
 
+    /**
+     * 試合中のプレイヤーの位置の格子<br/>
+     * スポーン地点の選択に使用し、1Tickごとに作り直す
+     */
+    protected final PlayerSpatialGrid playerGrid = new PlayerSpatialGrid();
+
     /**
      * 試合用マップ<br/>
      * マップが未決定の時はnull
@@ -134,6 +153,12 @@ public abstract class Match {
     @NotNull
     private MatchStatus status = NONE;
 
+    /**
+     * スポーン地点の選択に使用する、スポーン地点ごとの最も近い敵との距離の2乗<br/>
+     * 選択のたびに生成しないように使い回す
+     */
+    private double[] spawnScores = new double[0];
+
     /**
      * 破棄するためのフラグ
      */
@@ -217,6 +242,7 @@ public abstract class Match {
         this.statusTick++;
 
         baseTick();
+        updatePlayerGrid();
 
         // 状態別の処理
         switch (getStatus()) {
@@ -234,6 +260,25 @@ public abstract class Match {
         Match.this.dirtyAllInfo = false;
     }
 
+    /**
+     * 試合中のプレイヤーの位置の格子を作り直す
+     */
+    private void updatePlayerGrid() {
+        if (this.status != STARTED || this.matchMapInstance == null) {
+            this.playerGrid.clear();
+            return;
+        }
+
+        MatchMapWorld matchMapWorld = this.matchMapInstance.getMapWorld().orElse(null);
+
+        if (matchMapWorld == null) {
+            this.playerGrid.clear();
+            return;
+        }
+
+        this.playerGrid.rebuild(matchMapWorld.getWorld(), this.players.keySet(), this::getAllyGroup);
+    }
+
     /**
      * 試合開始前のTick処理
      */
@@ -248,7 +293,10 @@ public abstract class Match {
             /* マップが未読み込み時に選定されたマップが存在する場合 */
 
             // マップインスタンスを作成
-            this.matchMapInstance = mapHandler.createMapInstance(this, this.id, selectedMatchMap);
+            // 投票中に先行して読み込んでいた場合は、そちらを使用する
+            this.matchMapInstance = this.mapSelector.takeSelectedPreloadInstance()
+                    .map(instance -> mapHandler.adoptMapInstance(this, instance))
+                    .orElseGet(() -> mapHandler.createMapInstance(this, this.id, selectedMatchMap));
 
             this.players.keySet().forEach(this::sendMapInfoMessage);
 
@@ -750,6 +798,8 @@ public abstract class Match {
      * 破棄時の処理
      */
     protected void dispose() {
+        // 正常に終了した試合のマップは、元に戻して次の試合で使用する
+        boolean finished = this.status == FINISHED;
         changeStatus(MatchStatus.DISCARDED);
 
         // 全プレイヤー退出
@@ -759,8 +809,13 @@ public abstract class Match {
         countDownBossbar.hideAll();
 
         // マップ破棄
+        this.mapSelector.dispose();
         if (this.matchMapInstance != null) {
-            this.matchMapInstance.dispose();
+            if (finished) {
+                MatchManager.getInstance().getMapHandler().resetMapInstance(this.matchMapInstance, getMatchMode());
+            } else {
+                this.matchMapInstance.dispose();
+            }
         }
 
         SLUtils.getLogger().info(MsgHandler.getFormatted("system-match-discarded", getId()));
@@ -792,6 +847,23 @@ public abstract class Match {
         return matchMode;
     }
 
+    /**
+     * マップ読み込みの優先度を取得<br/>
+     * 待機しているプレイヤーが多く、試合開始のカウントダウンが進んでいるほど高い
+     *
+     * @return 優先度
+     */
+    public double getMapLoadPriority() {
+        double priority = this.players.size();
+
+        if (this.startRemainingTick >= 0) {
+            int startWaitTick = SLUtils.toTick(TimeUnit.MILLISECONDS, START_WAIT_TIME);
+            priority += MAP_LOAD_COUNTDOWN_PRIORITY * (1d - (double) this.startRemainingTick / startWaitTick);
+        }
+
+        return priority;
+    }
+
     @NotNull
     public MatchStatus getStatus() {
         return status;
@@ -926,26 +998,162 @@ public abstract class Match {
             return Optional.empty();
         }
 
-        return this.matchMapInstance.getMapWorld().flatMap(matchMapWorld ->
-                // マップが読み込み済みならばスポーン地点を抽選する
-                getSpawnMaker(matchMapWorld, player).map(mapMarker -> {
-                    BlockVector3 spawnPos = matchMapWorld.offsetCorrection(mapMarker.getPosition());
+        // マップが読み込み済みならばスポーン地点を抽選する
+        MatchMapWorld matchMapWorld = this.matchMapInstance.getMapWorld().orElse(null);
 
-                    Location unSetLocation = new Location(matchMapWorld.getWorld(), spawnPos.getX() + 0.5f, spawnPos.getY(), spawnPos.getZ() + 0.5f);
-                    unSetLocation.setDirection(mapMarker.getDirection().getDirection());
-                    return Optional.of(unSetLocation);
-                }).orElseGet(Optional::empty));
+        if (matchMapWorld == null) {
+            return Optional.empty();
+        }
+
+        // スポーン地点は事前に求めた表から選ぶ
+        MapSpawnTable spawnTable = getSpawnTable(matchMapWorld, player).orElse(null);
+
+        if (spawnTable == null) {
+            return Optional.empty();
+        }
+
+        Object allyGroup = getAllyGroup(player);
+        int spawnIndex = selectSpawnIndex(matchMapWorld.getWorld(), spawnTable, allyGroup);
+
+        // 同じTick内にスポーンするプレイヤーが重ならないように、スポーン先を格子へ反映する
+        double spawnX = spawnTable.getX(spawnIndex);
+        double spawnY = spawnTable.getY(spawnIndex);
+        double spawnZ = spawnTable.getZ(spawnIndex);
+        this.playerGrid.add(player, allyGroup, spawnX, spawnY, spawnZ);
+
+        return Optional.of(spawnTable.createLocation(spawnIndex));
+    }
+
+    /**
+     * 敵の位置を考慮してスポーン地点を選ぶ<br/>
+     * 近くに敵がいないスポーン地点からランダムに選び、存在しない場合は最も近い敵が遠い順に敵から見えないかを確認する<br/>
+     * 敵の検索は格子の周辺のみを調べるため、スポーン地点の数に比例した時間で終わる
+     *
+     * @param world      試合用ワールド
+     * @param spawnTable スポーン地点の表
+     * @param allyGroup  スポーンするプレイヤーの味方のグループ
+     * @return スポーン地点の添字
+     */
+    private int selectSpawnIndex(@NotNull World world, @NotNull MapSpawnTable spawnTable, @NotNull Object allyGroup) {
+        int size = spawnTable.size();
+
+        if (size == 1 || this.playerGrid.isEmpty()) {
+            return spawnTable.pickIndex(RANDOM);
+        }
+
+        double safeDistance = SLConfig.getSpawnSafeDistance();
+
+        if (this.spawnScores.length < size) {
+            this.spawnScores = new double[size];
+        }
+
+        // 範囲内に敵がいないスポーン地点から、リザーバーサンプリングで均等に選ぶ
+        int safeCount = 0;
+        int safeIndex = -1;
+
+        for (int i = 0; i < size; i++) {
+            double x = spawnTable.getX(i);
+            double y = spawnTable.getY(i);
+            double z = spawnTable.getZ(i);
+            PlayerSpatialGrid.Entry nearestEnemy = this.playerGrid.findNearestEnemy(x, y, z, safeDistance, allyGroup);
+
+            if (nearestEnemy == null) {
+                safeCount++;
+                if (RANDOM.nextInt(safeCount) == 0) {
+                    safeIndex = i;
+                }
+            } else {
+                this.spawnScores[i] = nearestEnemy.distanceSquared(x, y, z);
+            }
+        }
+
+        if (safeIndex >= 0) {
+            return safeIndex;
+        }
+
+        // 最も近い敵が遠い順に、確認できる数まで敵から見えないスポーン地点を探す
+        int lineOfSightChecks = SLConfig.getSpawnLineOfSightChecks();
+        int farthestIndex = -1;
+
+        for (int check = 0; check <= lineOfSightChecks; check++) {
+            int candidateIndex = -1;
+
+            for (int i = 0; i < size; i++) {
+                if (this.spawnScores[i] >= 0 && (candidateIndex < 0 || this.spawnScores[i] > this.spawnScores[candidateIndex])) {
+                    candidateIndex = i;
+                }
+            }
+
+            if (candidateIndex < 0) {
+                break;
+            }
+
+            if (farthestIndex < 0) {
+                farthestIndex = candidateIndex;
+            }
+
+            if (check == lineOfSightChecks) {
+                break;
+            }
+
+            double x = spawnTable.getX(candidateIndex);
+            double y = spawnTable.getY(candidateIndex);
+            double z = spawnTable.getZ(candidateIndex);
+            PlayerSpatialGrid.Entry nearestEnemy = this.playerGrid.findNearestEnemy(x, y, z, safeDistance, allyGroup);
+
+            if (nearestEnemy == null || !isVisibleFrom(world, nearestEnemy, x, y, z)) {
+                return candidateIndex;
+            }
+
+            // 確認済み
+            this.spawnScores[candidateIndex] = -1;
+        }
+
+        return farthestIndex;
+    }
+
+    /**
+     * 敵の視点からスポーン地点のプレイヤーの目の位置が見えるかどうか
+     *
+     * @param world 試合用ワールド
+     * @param enemy 敵
+     * @param x     スポーン地点のX座標
+     * @param y     スポーン地点のY座標
+     * @param z     スポーン地点のZ座標
+     * @return 見える場合はtrue
+     */
+    private static boolean isVisibleFrom(@NotNull World world, @NotNull PlayerSpatialGrid.Entry enemy, double x, double y, double z) {
+        Vector eye = new Vector(enemy.x(), enemy.y() + enemy.eyeHeight(), enemy.z());
+        Vector direction = new Vector(x, y + PLAYER_EYE_HEIGHT, z).subtract(eye);
+        double distance = direction.length();
+
+        if (distance < 1.0E-3) {
+            return true;
+        }
+
+        return world.rayTraceBlocks(eye.toLocation(world), direction.normalize(), distance, FluidCollisionMode.NEVER, true) == null;
+    }
+
+    /**
+     * 味方のグループを取得する<br/>
+     * 同じグループのプレイヤーはスポーン地点の選択で敵として扱わない
+     *
+     * @param player プレイヤー
+     * @return 味方のグループ
+     */
+    protected Object getAllyGroup(@NotNull Player player) {
+        return player;
     }
 
 
     /**
-     * スポーン地点のマーカーを取得
+     * スポーン地点の表を取得
      *
      * @param matchMapWorld 試合用ワールド
      * @param player        プレイヤー
-     * @return マーカー
+     * @return スポーン地点の表
      */
-    protected abstract Optional<MapMarker> getSpawnMaker(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player);
+    protected abstract Optional<MapSpawnTable> getSpawnTable(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player);
 
     /**
      * 指定されたプレイヤーが無敵かどうか
@@ -8,6 +8,7 @@ import dev.felnull.shortlifeplugin.match.map.MatchMapInstance;
 import dev.felnull.shortlifeplugin.utils.MatchUtils;
 import dev.felnull.shortlifeplugin.utils.SLUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
@@ -204,16 +205,17 @@ public final class MatchManager {
     }
 
     /**
-     * 指定したワールドで開催されている試合を取得
+     * 指定した位置で開催されている試合を取得<br/>
+     * アリーナワールドでは、位置を含む区画の試合を取得する
      *
-     * @param world ワールド
+     * @param location 位置
      * @return 試合
      */
-    public Optional<Match> getMatchByWorld(@NotNull World world) {
+    public Optional<Match> getMatchByLocation(@NotNull Location location) {
         return this.matches.values().stream()
                 .filter(match -> {
                     MatchMapInstance matchMapInstance = match.getMatchMapInstance();
-                    return matchMapInstance != null && matchMapInstance.isStrictWorldMatch(world);
+                    return matchMapInstance != null && matchMapInstance.isStrictLocationMatch(location);
                 })
                 .findFirst();
     }
@@ -0,0 +1,177 @@
+package dev.felnull.shortlifeplugin.match;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 試合用ワールド内のプレイヤーの位置を水平方向の格子で分けて保持するクラス<br/>
+ * 1Tickごとに作り直し、スポーン地点の近くにいる敵を周辺の格子のみから探す
+ *
+ * @author MORIMORI0317
+ */
+public class PlayerSpatialGrid {
+
+    /**
+     * 格子の一辺の長さのシフト数 (16ブロック)
+     */
+    private static final int CELL_SHIFT = 4;
+
+    /**
+     * 格子の位置とプレイヤー
+     */
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+
+    /**
+     * 保持しているプレイヤー数
+     */
+    private int size;
+
+    /**
+     * 作り直す
+     *
+     * @param world         試合用ワールド
+     * @param players       試合に参加しているプレイヤー
+     * @param groupFunction プレイヤーから味方のグループを取得する関数
+     */
+    public void rebuild(@NotNull World world, @NotNull Collection<Player> players, @NotNull Function<Player, Object> groupFunction) {
+        clear();
+
+        for (Player player : players) {
+            // 観戦中や死亡中のプレイヤーは脅威にならないため含めない
+            if (player.getWorld() != world || player.isDead() || player.getGameMode() == GameMode.SPECTATOR) {
+                continue;
+            }
+
+            Location location = player.getLocation();
+            add(player, groupFunction.apply(player), location.getX(), location.getY(), location.getZ());
+        }
+    }
+
+    /**
+     * プレイヤーを追加する<br/>
+     * 次に作り直すまでの間にスポーンしたプレイヤーを、以降のスポーン地点の選択に反映するため
+     *
+     * @param player プレイヤー
+     * @param group  味方のグループ
+     * @param x      X座標
+     * @param y      Y座標
+     * @param z      Z座標
+     */
+    public void add(@NotNull Player player, @NotNull Object group, double x, double y, double z) {
+        Entry entry = new Entry(player, group, x, y, z, player.getEyeHeight());
+        this.cells.computeIfAbsent(cellKey(toCell(x), toCell(z)), key -> new ArrayList<>()).add(entry);
+        this.size++;
+    }
+
+    /**
+     * 全て削除する
+     */
+    public void clear() {
+        this.cells.clear();
+        this.size = 0;
+    }
+
+    /**
+     * プレイヤーが存在しないかどうか
+     *
+     * @return 存在しない場合はtrue
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * 指定した範囲内で最も近い敵を探す<br/>
+     * 範囲に重なる格子のみを調べるため、範囲が一定であれば参加人数に関わらずほぼ一定の時間で終わる
+     *
+     * @param x         X座標
+     * @param y         Y座標
+     * @param z         Z座標
+     * @param radius    探す範囲
+     * @param allyGroup 味方のグループ (このグループのプレイヤーは除外する)
+     * @return 最も近い敵、範囲内に存在しない場合はnull
+     */
+    @Nullable
+    public Entry findNearestEnemy(double x, double y, double z, double radius, @NotNull Object allyGroup) {
+        if (this.size == 0) {
+            return null;
+        }
+
+        int minCellX = toCell(x - radius);
+        int maxCellX = toCell(x + radius);
+        int minCellZ = toCell(z - radius);
+        int maxCellZ = toCell(z + radius);
+
+        Entry nearest = null;
+        double nearestDistanceSq = radius * radius;
+
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                List<Entry> entries = this.cells.get(cellKey(cellX, cellZ));
+
+                if (entries == null) {
+                    continue;
+                }
+
+                for (Entry entry : entries) {
+                    if (entry.group() == allyGroup || entry.group().equals(allyGroup)) {
+                        continue;
+                    }
+
+                    double distanceSq = entry.distanceSquared(x, y, z);
+
+                    if (distanceSq <= nearestDistanceSq) {
+                        nearest = entry;
+                        nearestDistanceSq = distanceSq;
+                    }
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+    private static int toCell(double coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 格子に保持するプレイヤーの位置
+     *
+     * @param player    プレイヤー
+     * @param group     味方のグループ
+     * @param x         X座標
+     * @param y         Y座標
+     * @param z         Z座標
+     * @param eyeHeight 目の高さ
+     * @author MORIMORI0317
+     */
+    public record Entry(@NotNull Player player, @NotNull Object group, double x, double y, double z, double eyeHeight) {
+
+        /**
+         * 指定した座標との距離の2乗を取得
+         *
+         * @param targetX X座標
+         * @param targetY Y座標
+         * @param targetZ Z座標
+         * @return 距離の2乗
+         */
+        public double distanceSquared(double targetX, double targetY, double targetZ) {
+            double dx = this.x - targetX;
+            double dy = this.y - targetY;
+            double dz = this.z - targetZ;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -3,8 +3,8 @@ package dev.felnull.shortlifeplugin.match;
 import com.google.common.collect.ImmutableList;
 import dev.felnull.shortlifeplugin.MsgHandler;
 import dev.felnull.shortlifeplugin.integration.TABIntegration;
-import dev.felnull.shortlifeplugin.match.map.MapMarker;
 import dev.felnull.shortlifeplugin.match.map.MapMarkerPoints;
+import dev.felnull.shortlifeplugin.match.map.MapSpawnTable;
 import dev.felnull.shortlifeplugin.match.map.MatchMapWorld;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.text.Component;
@@ -190,8 +190,13 @@ public abstract class TeamBaseMatch extends PVPBaseMatch {
     }
 
     @Override
-    protected Optional<MapMarker> getSpawnMaker(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player) {
-        return getTeamByPlayer(player).flatMap(matchTeam -> matchMapWorld.getMakerRandom(matchTeam.getRespawnPoint()));
+    protected Optional<MapSpawnTable> getSpawnTable(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player) {
+        return getTeamByPlayer(player).flatMap(matchTeam -> matchMapWorld.getSpawnTable(matchTeam.getRespawnPoint()));
+    }
+
+    @Override
+    protected Object getAllyGroup(@NotNull Player player) {
+        return getTeamByPlayer(player).<Object>map(matchTeam -> matchTeam).orElse(player);
     }
 
     @Override
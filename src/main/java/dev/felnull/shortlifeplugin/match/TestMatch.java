@@ -1,8 +1,8 @@
 package dev.felnull.shortlifeplugin.match;
 
 import dev.felnull.fnjl.util.FNStringUtil;
-import dev.felnull.shortlifeplugin.match.map.MapMarker;
 import dev.felnull.shortlifeplugin.match.map.MapMarkerPoints;
+import dev.felnull.shortlifeplugin.match.map.MapSpawnTable;
 import dev.felnull.shortlifeplugin.match.map.MatchMapWorld;
 import net.kyori.adventure.text.Component;
 import org.bukkit.entity.Player;
@@ -41,7 +41,7 @@ public class TestMatch extends Match {
     }
 
     @Override
-    protected Optional<MapMarker> getSpawnMaker(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player) {
-        return matchMapWorld.getMakerRandom(MapMarkerPoints.SPAWN.get());
+    protected Optional<MapSpawnTable> getSpawnTable(@NotNull MatchMapWorld matchMapWorld, @NotNull Player player) {
+        return matchMapWorld.getSpawnTable(MapMarkerPoints.SPAWN.get());
     }
 }
@@ -0,0 +1,84 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 共有されたクリップボードの書き込み時コピービュー<br/>
+ * 書き込まれたブロックはこのビューだけに保持され、元のクリップボードは変更されない
+ *
+ * @author MORIMORI0317
+ */
+public class ClipboardView extends AbstractDelegateExtent {
+
+    /**
+     * 元のクリップボード
+     */
+    @NotNull
+    private final Clipboard clipboard;
+
+    /**
+     * このビューで書き込まれたブロック
+     */
+    private final Map<BlockVector3, BaseBlock> overlayBlocks = new HashMap<>();
+
+    /**
+     * コンストラクタ
+     *
+     * @param clipboard 元のクリップボード
+     */
+    public ClipboardView(@NotNull Clipboard clipboard) {
+        super(clipboard);
+        this.clipboard = clipboard;
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        BaseBlock overlayBlock = this.overlayBlocks.get(position);
+        return overlayBlock != null ? overlayBlock.toImmutableState() : super.getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        BaseBlock overlayBlock = this.overlayBlocks.get(position);
+        return overlayBlock != null ? overlayBlock : super.getFullBlock(position);
+    }
+
+    @Override
+    public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+        this.overlayBlocks.put(location, block.toBaseBlock());
+        return true;
+    }
+
+    @NotNull
+    public Clipboard getClipboard() {
+        return clipboard;
+    }
+
+    /**
+     * 元のクリップボードの原点を取得
+     *
+     * @return 原点
+     */
+    public BlockVector3 getOrigin() {
+        return this.clipboard.getOrigin();
+    }
+
+    /**
+     * 元のクリップボードがバイオームを持つかどうか
+     *
+     * @return バイオームを持つ場合はtrue
+     */
+    public boolean hasBiomes() {
+        return this.clipboard.hasBiomes();
+    }
+}
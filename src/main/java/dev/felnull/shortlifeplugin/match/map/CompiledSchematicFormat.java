@@ -0,0 +1,585 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.hash.HashCode;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extension.input.ParserContext;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.biome.BiomeTypes;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.entity.EntityType;
+import com.sk89q.worldedit.world.entity.EntityTypes;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * スケマティックを事前に変換したプラグイン独自のバイナリ形式<br/>
+ * ブロックはパレットと、パレット番号を可変長整数でランレングス圧縮したもので保存し、ブロックエンティティ、エンティティ、マーカーは別の表に保存する<br/>
+ * 読み込み時はファイルをメモリマップして、NBTの展開を行わずにクリップボードを作成する<br/>
+ * 元のスケマティックの更新日時、サイズ、内容のハッシュを保存し、元のスケマティックと一致する場合のみ使用する
+ *
+ * @author MORIMORI0317
+ */
+public final class CompiledSchematicFormat {
+
+    /**
+     * 拡張子
+     */
+    public static final String EXTENSION = ".slschem";
+
+    /**
+     * ファイルの識別子 ("SLSC")
+     */
+    private static final int MAGIC = 0x534C5343;
+
+    /**
+     * 形式のバージョン<br/>
+     * 形式を変更した場合は値を上げて、変換済みのファイルを作り直させる
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * GSON
+     */
+    private static final Gson GSON = new Gson();
+
+    private CompiledSchematicFormat() {
+        throw new AssertionError();
+    }
+
+    /**
+     * スケマティックファイルに対応する変換済みファイルを取得
+     *
+     * @param schemFile スケマティックファイル
+     * @return 変換済みファイル
+     */
+    public static File getCompiledFile(@NotNull File schemFile) {
+        String name = schemFile.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        String baseName = extensionIndex >= 0 ? name.substring(0, extensionIndex) : name;
+        return new File(schemFile.getParentFile(), baseName + EXTENSION);
+    }
+
+    /**
+     * 変換済みファイルが、スケマティックファイルの現在の内容から作成されたものかどうか
+     *
+     * @param schemFile スケマティックファイル
+     * @return 使用できる場合はtrue
+     */
+    public static boolean isUpToDate(@NotNull File schemFile) {
+        File compiledFile = getCompiledFile(schemFile);
+
+        if (!compiledFile.isFile()) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(compiledFile)))) {
+            return in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION
+                    && in.readLong() == schemFile.lastModified() && in.readLong() == schemFile.length();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 変換済みファイルを読み込む<br/>
+     * 元のスケマティックファイルと一致しない場合は空を返す
+     *
+     * @param schemFile スケマティックファイル
+     * @return 読み込まれたスケマティックとマーカーの集まり
+     * @throws IOException 読み込み失敗
+     */
+    public static Optional<Compiled> read(@NotNull File schemFile) throws IOException {
+        File compiledFile = getCompiledFile(schemFile);
+
+        if (!compiledFile.isFile()) {
+            return Optional.empty();
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(compiledFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                || buffer.getLong() != schemFile.lastModified() || buffer.getLong() != schemFile.length()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(readBody(buffer));
+        } catch (WorldEditException | RuntimeException e) {
+            throw new IOException("変換済みスケマティックの読み込みに失敗: " + compiledFile.getName(), e);
+        }
+    }
+
+    /**
+     * 読み込んだスケマティックを変換して保存する
+     *
+     * @param schemFile スケマティックファイル
+     * @param clipboard スケマティックのクリップボード
+     * @param schemHash スケマティックの内容のハッシュ
+     * @param markerSet マーカーの集まり
+     * @throws IOException 書き込み失敗
+     */
+    public static void write(@NotNull File schemFile, @NotNull Clipboard clipboard, @NotNull HashCode schemHash, @NotNull MapMarkerSet markerSet) throws IOException {
+        File compiledFile = getCompiledFile(schemFile);
+
+        // 書き込み途中のファイルを読まないように、一時ファイルへ書き込んでから置き換える
+        File tmpFile = new File(compiledFile.getParentFile(), compiledFile.getName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(schemFile.lastModified());
+            out.writeLong(schemFile.length());
+            writeBody(out, clipboard, schemHash, markerSet);
+        }
+
+        Files.move(tmpFile.toPath(), compiledFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBody(DataOutputStream out, Clipboard clipboard, HashCode schemHash, MapMarkerSet markerSet) throws IOException {
+        byte[] hashBytes = schemHash.asBytes();
+        writeVarInt(out, hashBytes.length);
+        out.write(hashBytes);
+
+        BlockVector3 origin = clipboard.getOrigin();
+        BlockVector3 min = clipboard.getMinimumPoint();
+        BlockVector3 max = clipboard.getMaximumPoint();
+        writeVector(out, origin);
+        writeVector(out, min);
+        writeVector(out, max);
+
+        // ブロックのパレットとランレングス圧縮したパレット番号、ブロックエンティティの表
+        Map<BlockState, Integer> blockPalette = new LinkedHashMap<>();
+        RunLengthWriter blockRuns = new RunLengthWriter();
+        ByteArrayOutputStream blockEntityBytes = new ByteArrayOutputStream();
+        DataOutputStream blockEntityOut = new DataOutputStream(blockEntityBytes);
+        int blockEntityCount = 0;
+
+        // バイオームのパレットとランレングス圧縮したパレット番号
+        boolean hasBiomes = clipboard.hasBiomes();
+        Map<BiomeType, Integer> biomePalette = new LinkedHashMap<>();
+        RunLengthWriter biomeRuns = new RunLengthWriter();
+
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    BlockVector3 pos = BlockVector3.at(x, y, z);
+                    BaseBlock block = clipboard.getFullBlock(pos);
+                    BlockState state = block.toImmutableState();
+
+                    blockRuns.add(blockPalette.computeIfAbsent(state, key -> blockPalette.size()));
+
+                    CompoundTag nbt = block.getNbtData();
+                    if (nbt != null) {
+                        writeVarInt(blockEntityOut, x - min.getX());
+                        writeVarInt(blockEntityOut, y - min.getY());
+                        writeVarInt(blockEntityOut, z - min.getZ());
+                        writeNbt(blockEntityOut, nbt);
+                        blockEntityCount++;
+                    }
+
+                    if (hasBiomes) {
+                        biomeRuns.add(biomePalette.computeIfAbsent(clipboard.getBiome(pos), key -> biomePalette.size()));
+                    }
+                }
+            }
+        }
+
+        writeVarInt(out, blockPalette.size());
+        for (BlockState state : blockPalette.keySet()) {
+            writeString(out, state.getAsString());
+        }
+        blockRuns.writeTo(out);
+
+        out.writeBoolean(hasBiomes);
+        if (hasBiomes) {
+            writeVarInt(out, biomePalette.size());
+            for (BiomeType biome : biomePalette.keySet()) {
+                writeString(out, biome.getId());
+            }
+            biomeRuns.writeTo(out);
+        }
+
+        writeVarInt(out, blockEntityCount);
+        blockEntityOut.flush();
+        blockEntityBytes.writeTo(out);
+
+        // エンティティの表
+        List<? extends Entity> entities = clipboard.getEntities();
+        List<BaseEntity> entityStates = new ArrayList<>();
+        List<Location> entityLocations = new ArrayList<>();
+        for (Entity entity : entities) {
+            BaseEntity state = entity.getState();
+            if (state != null) {
+                entityStates.add(state);
+                entityLocations.add(entity.getLocation());
+            }
+        }
+
+        writeVarInt(out, entityStates.size());
+        for (int i = 0; i < entityStates.size(); i++) {
+            BaseEntity state = entityStates.get(i);
+            Location location = entityLocations.get(i);
+
+            writeString(out, state.getType().getId());
+            out.writeDouble(location.getX());
+            out.writeDouble(location.getY());
+            out.writeDouble(location.getZ());
+            out.writeFloat(location.getYaw());
+            out.writeFloat(location.getPitch());
+
+            CompoundTag nbt = state.getNbtData();
+            out.writeBoolean(nbt != null);
+            if (nbt != null) {
+                writeNbt(out, nbt);
+            }
+        }
+
+        // マーカーの表
+        writeString(out, GSON.toJson(MapMarkerIndex.markerSetToJson(markerSet)));
+    }
+
+    private static Compiled readBody(ByteBuffer buffer) throws IOException, WorldEditException {
+        byte[] hashBytes = new byte[readVarInt(buffer)];
+        buffer.get(hashBytes);
+        HashCode schemHash = HashCode.fromBytes(hashBytes);
+
+        BlockVector3 origin = readVector(buffer);
+        BlockVector3 min = readVector(buffer);
+        BlockVector3 max = readVector(buffer);
+
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(new CuboidRegion(min, max));
+        clipboard.setOrigin(origin);
+
+        // ブロック
+        ParserContext parserContext = new ParserContext();
+        parserContext.setRestricted(false);
+        parserContext.setTryLegacy(false);
+        parserContext.setPreferringWildcard(false);
+
+        BlockState[] blockPalette = new BlockState[readVarInt(buffer)];
+        for (int i = 0; i < blockPalette.length; i++) {
+            blockPalette[i] = WorldEdit.getInstance().getBlockFactory().parseFromInput(readString(buffer), parserContext).toImmutableState();
+        }
+
+        VolumeCursor blockCursor = new VolumeCursor(min, max);
+        int blockRunCount = readVarInt(buffer);
+        for (int i = 0; i < blockRunCount; i++) {
+            int runLength = readVarInt(buffer);
+            BlockState state = blockPalette[readVarInt(buffer)];
+            for (int j = 0; j < runLength; j++) {
+                clipboard.setBlock(blockCursor.next(), state);
+            }
+        }
+
+        // バイオーム
+        if (buffer.get() != 0) {
+            BiomeType[] biomePalette = new BiomeType[readVarInt(buffer)];
+            for (int i = 0; i < biomePalette.length; i++) {
+                String biomeId = readString(buffer);
+                biomePalette[i] = Objects.requireNonNull(BiomeTypes.get(biomeId), () -> "不明なバイオーム: " + biomeId);
+            }
+
+            VolumeCursor biomeCursor = new VolumeCursor(min, max);
+            int biomeRunCount = readVarInt(buffer);
+            for (int i = 0; i < biomeRunCount; i++) {
+                int runLength = readVarInt(buffer);
+                BiomeType biome = biomePalette[readVarInt(buffer)];
+                for (int j = 0; j < runLength; j++) {
+                    clipboard.setBiome(biomeCursor.next(), biome);
+                }
+            }
+        }
+
+        // ブロックエンティティ
+        int blockEntityCount = readVarInt(buffer);
+        for (int i = 0; i < blockEntityCount; i++) {
+            BlockVector3 pos = min.add(readVarInt(buffer), readVarInt(buffer), readVarInt(buffer));
+            CompoundTag nbt = readNbt(buffer);
+            clipboard.setBlock(pos, clipboard.getBlock(pos).toBaseBlock(nbt));
+        }
+
+        // エンティティ
+        int entityCount = readVarInt(buffer);
+        for (int i = 0; i < entityCount; i++) {
+            String entityId = readString(buffer);
+            EntityType entityType = Objects.requireNonNull(EntityTypes.get(entityId), () -> "不明なエンティティ: " + entityId);
+            Location location = new Location(clipboard, buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getFloat(), buffer.getFloat());
+            clipboard.createEntity(location, buffer.get() != 0 ? new BaseEntity(entityType, readNbt(buffer)) : new BaseEntity(entityType));
+        }
+
+        // マーカー
+        MapMarkerSet markerSet = MapMarkerIndex.markerSetFromJson(GSON.fromJson(readString(buffer), JsonArray.class));
+
+        return new Compiled(clipboard, schemHash, markerSet);
+    }
+
+    private static void writeVector(DataOutputStream out, BlockVector3 vector) throws IOException {
+        out.writeInt(vector.getX());
+        out.writeInt(vector.getY());
+        out.writeInt(vector.getZ());
+    }
+
+    private static BlockVector3 readVector(ByteBuffer buffer) {
+        return BlockVector3.at(buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    private static void writeNbt(DataOutputStream out, CompoundTag nbt) throws IOException {
+        ByteArrayOutputStream nbtBytes = new ByteArrayOutputStream();
+        try (NBTOutputStream nbtOut = new NBTOutputStream(nbtBytes)) {
+            nbtOut.writeNamedTag("", nbt);
+        }
+
+        writeVarInt(out, nbtBytes.size());
+        nbtBytes.writeTo(out);
+    }
+
+    private static CompoundTag readNbt(ByteBuffer buffer) throws IOException {
+        byte[] nbtBytes = new byte[readVarInt(buffer)];
+        buffer.get(nbtBytes);
+
+        try (NBTInputStream nbtIn = new NBTInputStream(new ByteArrayInputStream(nbtBytes))) {
+            Tag tag = nbtIn.readNamedTag().getTag();
+
+            if (!(tag instanceof CompoundTag compoundTag)) {
+                throw new IOException("NBTがCompoundTagではありません");
+            }
+
+            return compoundTag;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 0以上の整数を可変長(7ビットずつ)で書き込む
+     *
+     * @param out   出力先
+     * @param value 値
+     * @throws IOException 書き込み失敗
+     */
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        int remaining = value;
+
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+
+        out.writeByte(remaining);
+    }
+
+    /**
+     * 可変長の整数を読み込む
+     *
+     * @param buffer 入力元
+     * @return 値
+     */
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            if (shift >= Integer.SIZE) {
+                throw new IllegalStateException("可変長整数が長すぎます");
+            }
+
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * 変換済みファイルから読み込まれたスケマティック
+     *
+     * @param clipboard クリップボード
+     * @param schemHash 元のスケマティックの内容のハッシュ
+     * @param markerSet マーカーの集まり
+     * @author MORIMORI0317
+     */
+    public record Compiled(@NotNull Clipboard clipboard, @NotNull HashCode schemHash, @NotNull MapMarkerSet markerSet) {
+    }
+
+    /**
+     * パレット番号のランレングス圧縮
+     *
+     * @author MORIMORI0317
+     */
+    private static class RunLengthWriter {
+
+        /**
+         * 圧縮済みの連続
+         */
+        private final ByteArrayOutputStream runBytes = new ByteArrayOutputStream();
+
+        /**
+         * 圧縮済みの連続の出力
+         */
+        private final DataOutputStream runOut = new DataOutputStream(this.runBytes);
+
+        /**
+         * 圧縮済みの連続の数
+         */
+        private int runCount;
+
+        /**
+         * 現在の連続のパレット番号
+         */
+        private int currentIndex = -1;
+
+        /**
+         * 現在の連続の長さ
+         */
+        private int currentLength;
+
+        /**
+         * パレット番号を追加
+         *
+         * @param index パレット番号
+         * @throws IOException 書き込み失敗
+         */
+        private void add(int index) throws IOException {
+            if (index == this.currentIndex) {
+                this.currentLength++;
+                return;
+            }
+
+            flushRun();
+            this.currentIndex = index;
+            this.currentLength = 1;
+        }
+
+        /**
+         * 連続の数と、全ての連続を書き込む
+         *
+         * @param out 出力先
+         * @throws IOException 書き込み失敗
+         */
+        private void writeTo(DataOutputStream out) throws IOException {
+            flushRun();
+            this.runOut.flush();
+            writeVarInt(out, this.runCount);
+            this.runBytes.writeTo(out);
+        }
+
+        private void flushRun() throws IOException {
+            if (this.currentLength > 0) {
+                writeVarInt(this.runOut, this.currentLength);
+                writeVarInt(this.runOut, this.currentIndex);
+                this.runCount++;
+                this.currentLength = 0;
+            }
+        }
+    }
+
+    /**
+     * 範囲内の座標をY,Z,Xの順に返すカーソル
+     *
+     * @author MORIMORI0317
+     */
+    private static class VolumeCursor {
+
+        /**
+         * 最小座標
+         */
+        private final BlockVector3 min;
+
+        /**
+         * 最大座標
+         */
+        private final BlockVector3 max;
+
+        /**
+         * 次のX座標
+         */
+        private int x;
+
+        /**
+         * 次のY座標
+         */
+        private int y;
+
+        /**
+         * 次のZ座標
+         */
+        private int z;
+
+        /**
+         * コンストラクタ
+         *
+         * @param min 最小座標
+         * @param max 最大座標
+         */
+        private VolumeCursor(BlockVector3 min, BlockVector3 max) {
+            this.min = min;
+            this.max = max;
+            this.x = min.getX();
+            this.y = min.getY();
+            this.z = min.getZ();
+        }
+
+        /**
+         * 次の座標を取得
+         *
+         * @return 座標
+         */
+        private BlockVector3 next() {
+            if (this.y > this.max.getY()) {
+                throw new IllegalStateException("範囲外のブロックです");
+            }
+
+            BlockVector3 pos = BlockVector3.at(this.x, this.y, this.z);
+
+            if (++this.x > this.max.getX()) {
+                this.x = this.min.getX();
+
+                if (++this.z > this.max.getZ()) {
+                    this.z = this.min.getZ();
+                    this.y++;
+                }
+            }
+
+            return pos;
+        }
+    }
+}
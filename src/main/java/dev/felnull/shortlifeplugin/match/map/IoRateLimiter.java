@@ -0,0 +1,170 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 試合用ワールドのファイル操作の速度を制限するクラス<br/>
+ * 1秒間のバイト数と操作数(ファイルの作成、削除、移動など)をそれぞれトークンバケットで制限し、
+ * 複数のワールドの複製や削除が重なってもサーバーのチャンク保存などがディスクを使えるようにする<br/>
+ * 複製と削除で共有し、合計の速度が上限を超えないようにする
+ *
+ * @author MORIMORI0317
+ */
+public class IoRateLimiter {
+
+    /**
+     * 1秒間に転送するバイト数の制限<br/>
+     * 制限しない場合はnull
+     */
+    @Nullable
+    private final TokenBucket bytesBucket;
+
+    /**
+     * 1秒間に行う操作数の制限<br/>
+     * 制限しない場合はnull
+     */
+    @Nullable
+    private final TokenBucket opsBucket;
+
+    /**
+     * コンストラクタ
+     *
+     * @param maxBytesPerSecond 1秒間に転送するバイト数の上限、0以下の場合は制限しない
+     * @param maxOpsPerSecond   1秒間に行う操作数の上限、0以下の場合は制限しない
+     */
+    protected IoRateLimiter(long maxBytesPerSecond, double maxOpsPerSecond) {
+        this.bytesBucket = maxBytesPerSecond > 0 ? new TokenBucket(maxBytesPerSecond) : null;
+        this.opsBucket = maxOpsPerSecond > 0 ? new TokenBucket(maxOpsPerSecond) : null;
+    }
+
+    /**
+     * 操作を行う前に呼び出し、上限を超えている場合は待機する
+     *
+     * @throws InterruptedIOException 待機中に割り込まれた
+     */
+    public void acquireOperation() throws InterruptedIOException {
+        if (this.opsBucket != null) {
+            this.opsBucket.acquire(1);
+        }
+    }
+
+    /**
+     * 待機できないスレッドで行った操作を記録する<br/>
+     * 待機はせず、以降の操作が記録した分だけ待機する
+     */
+    public void recordOperation() {
+        if (this.opsBucket != null) {
+            this.opsBucket.reserve(1);
+        }
+    }
+
+    /**
+     * 転送を行う前に呼び出し、上限を超えている場合は待機する
+     *
+     * @param bytes 転送するバイト数
+     * @throws InterruptedIOException 待機中に割り込まれた
+     */
+    public void acquireBytes(long bytes) throws InterruptedIOException {
+        if (this.bytesBucket != null && bytes > 0) {
+            this.bytesBucket.acquire(bytes);
+        }
+    }
+
+    /**
+     * 一度に転送するサイズを、1秒間に転送できるバイト数以下に制限する<br/>
+     * 大きな転送で長時間待機しないようにするため
+     *
+     * @param chunkSize 転送したいサイズ
+     * @return 一度に転送するサイズ
+     */
+    public long limitChunkSize(long chunkSize) {
+        if (this.bytesBucket == null) {
+            return chunkSize;
+        }
+
+        return Math.max(Math.min(chunkSize, (long) this.bytesBucket.capacity), 1);
+    }
+
+    /**
+     * トークンバケット<br/>
+     * 1秒分のトークンまで貯めることができ、不足している場合は前借りして不足分が補充されるまで待機する
+     *
+     * @author MORIMORI0317
+     */
+    private static class TokenBucket {
+
+        /**
+         * 1秒間に補充されるトークン数
+         */
+        private final double tokensPerSecond;
+
+        /**
+         * 貯められるトークン数の上限
+         */
+        private final double capacity;
+
+        /**
+         * 現在のトークン数 (前借りした場合は負)
+         */
+        private double tokens;
+
+        /**
+         * 最後に補充した時間 (ns)
+         */
+        private long lastRefillTime = System.nanoTime();
+
+        /**
+         * コンストラクタ
+         *
+         * @param tokensPerSecond 1秒間に補充されるトークン数
+         */
+        private TokenBucket(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            this.capacity = tokensPerSecond;
+            this.tokens = tokensPerSecond;
+        }
+
+        /**
+         * トークンを取得し、不足分が補充されるまで待機する
+         *
+         * @param amount 取得するトークン数
+         * @throws InterruptedIOException 待機中に割り込まれた
+         */
+        private void acquire(double amount) throws InterruptedIOException {
+            long waitNanos = reserve(amount);
+
+            if (waitNanos <= 0) {
+                return;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("ファイル操作の待機中に中断されました");
+            }
+        }
+
+        /**
+         * トークンを取得する
+         *
+         * @param amount 取得するトークン数
+         * @return 不足分が補充されるまでの時間 (ns)
+         */
+        private synchronized long reserve(double amount) {
+            long now = System.nanoTime();
+            this.tokens = Math.min(this.tokens + (now - this.lastRefillTime) * this.tokensPerSecond / TimeUnit.SECONDS.toNanos(1), this.capacity);
+            this.lastRefillTime = now;
+            this.tokens -= amount;
+
+            if (this.tokens >= 0) {
+                return 0;
+            }
+
+            return (long) (-this.tokens / this.tokensPerSecond * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 試合用マップの読み込みに使用するExecutor<br/>
+ * ファイルの複製や読み書きなど待機の多い処理はIO用、デコードや走査など計算の多い処理はCPU用と分けて実行する<br/>
+ * IO用は実行環境が仮想スレッドに対応している場合は仮想スレッドを使用し、対応していない場合はスレッドプールを使用する
+ *
+ * @author MORIMORI0317
+ */
+public class MapLoadExecutors {
+
+    /**
+     * 停止時に処理の完了を待機する時間 (秒)
+     */
+    private static final long SHUTDOWN_WAIT_TIME = 194;
+
+    /**
+     * 仮想スレッドに対応していない場合の、IO用スレッドプールのスレッド数の下限
+     */
+    private static final int MIN_IO_THREAD_COUNT = 4;
+
+    /**
+     * CPU用プールの並列数
+     */
+    private static final int CPU_PARALLELISM = Math.max(Runtime.getRuntime().availableProcessors(), 1);
+
+    /**
+     * IO用ExecutorService
+     */
+    @NotNull
+    private final ExecutorService ioExecutorService;
+
+    /**
+     * IO用Executorが仮想スレッドを使用しているかどうか
+     */
+    private final boolean virtualThreadIo;
+
+    /**
+     * CPU用プール<br/>
+     * 並列ストリームによる走査にも使用する
+     */
+    private final ForkJoinPool cpuPool = new ForkJoinPool(CPU_PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("map-loader-cpu-worker-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    /**
+     * 待機数を計測するIO用Executor
+     */
+    @NotNull
+    private final MeteredExecutor ioExecutor;
+
+    /**
+     * 待機数を計測するCPU用Executor
+     */
+    private final MeteredExecutor cpuExecutor = new MeteredExecutor(this.cpuPool);
+
+    /**
+     * コンストラクタ
+     */
+    protected MapLoadExecutors() {
+        ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+
+        if (virtualThreadExecutor != null) {
+            this.ioExecutorService = virtualThreadExecutor;
+            this.virtualThreadIo = true;
+        } else {
+            this.ioExecutorService = Executors.newFixedThreadPool(Math.max(CPU_PARALLELISM, MIN_IO_THREAD_COUNT),
+                    new BasicThreadFactory.Builder().namingPattern("map-loader-io-worker-%d").daemon(true).build());
+            this.virtualThreadIo = false;
+        }
+
+        this.ioExecutor = new MeteredExecutor(this.ioExecutorService);
+    }
+
+    /**
+     * 停止する<br/>
+     * 実行中の処理は完了を待機し、待機時間を超えた場合は割り込みを行う
+     */
+    public void shutdown() {
+        this.ioExecutorService.shutdown();
+        this.cpuPool.shutdown();
+
+        try {
+            if (!awaitTermination()) {
+                this.ioExecutorService.shutdownNow();
+                this.cpuPool.shutdownNow();
+
+                if (!awaitTermination()) {
+                    SLUtils.getLogger().warning(MsgHandler.get("system-async-executor-stop-failed"));
+                }
+            }
+        } catch (InterruptedException e) {
+            this.ioExecutorService.shutdownNow();
+            this.cpuPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * IO用Executorを取得<br/>
+     * ファイルの複製、読み込み、書き込みなど待機の多い処理に使用する
+     *
+     * @return IO用Executor
+     */
+    public MeteredExecutor getIoExecutor() {
+        return this.ioExecutor;
+    }
+
+    /**
+     * CPU用Executorを取得<br/>
+     * デコードやマーカーの走査など計算の多い処理に使用する
+     *
+     * @return CPU用Executor
+     */
+    public MeteredExecutor getCpuExecutor() {
+        return this.cpuExecutor;
+    }
+
+    /**
+     * CPU用プールを取得<br/>
+     * 並列ストリームを使用する処理を実行するために使用する
+     *
+     * @return CPU用プール
+     */
+    public ForkJoinPool getCpuPool() {
+        return this.cpuPool;
+    }
+
+    /**
+     * IO用Executorが仮想スレッドを使用しているかどうか
+     *
+     * @return 仮想スレッドを使用していればtrue
+     */
+    public boolean isVirtualThreadIo() {
+        return this.virtualThreadIo;
+    }
+
+    private boolean awaitTermination() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_WAIT_TIME);
+        boolean ioTerminated = this.ioExecutorService.awaitTermination(SHUTDOWN_WAIT_TIME, TimeUnit.SECONDS);
+        boolean cpuTerminated = this.cpuPool.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        return ioTerminated && cpuTerminated;
+    }
+
+    /**
+     * 仮想スレッドのExecutorを作成<br/>
+     * Java17を対象にビルドしているため、リフレクションで作成する
+     *
+     * @return 仮想スレッドのExecutor、対応していない場合はnull
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 待機中と実行中の処理数を計測するExecutor
+     *
+     * @author MORIMORI0317
+     */
+    public static class MeteredExecutor implements Executor {
+
+        /**
+         * 実際に処理を行うExecutor
+         */
+        @NotNull
+        private final Executor delegate;
+
+        /**
+         * 実行待ちの処理数
+         */
+        private final AtomicInteger queuedCount = new AtomicInteger();
+
+        /**
+         * 実行中の処理数
+         */
+        private final AtomicInteger activeCount = new AtomicInteger();
+
+        /**
+         * 完了した処理数
+         */
+        private final AtomicLong completedCount = new AtomicLong();
+
+        /**
+         * 実行待ちの最大数
+         */
+        private final AtomicInteger maxQueuedCount = new AtomicInteger();
+
+        /**
+         * コンストラクタ
+         *
+         * @param delegate 実際に処理を行うExecutor
+         */
+        private MeteredExecutor(@NotNull Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(@NotNull Runnable command) {
+            this.maxQueuedCount.accumulateAndGet(this.queuedCount.incrementAndGet(), Math::max);
+
+            try {
+                this.delegate.execute(() -> {
+                    this.queuedCount.decrementAndGet();
+                    this.activeCount.incrementAndGet();
+
+                    try {
+                        command.run();
+                    } finally {
+                        this.activeCount.decrementAndGet();
+                        this.completedCount.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.queuedCount.decrementAndGet();
+                throw e;
+            }
+        }
+
+        /**
+         * 実行待ちの処理数を取得
+         *
+         * @return 処理数
+         */
+        public int getQueuedCount() {
+            return this.queuedCount.get();
+        }
+
+        /**
+         * 実行中の処理数を取得
+         *
+         * @return 処理数
+         */
+        public int getActiveCount() {
+            return this.activeCount.get();
+        }
+
+        /**
+         * 完了した処理数を取得
+         *
+         * @return 処理数
+         */
+        public long getCompletedCount() {
+            return this.completedCount.get();
+        }
+
+        /**
+         * 実行待ちの最大数を取得
+         *
+         * @return 処理数
+         */
+        public int getMaxQueuedCount() {
+            return this.maxQueuedCount.get();
+        }
+    }
+}
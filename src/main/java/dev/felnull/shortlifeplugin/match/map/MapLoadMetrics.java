@@ -0,0 +1,274 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 試合用マップごとの読み込み時間の統計<br/>
+ * 段階ごとに直近の処理時間を保持し、パーセンタイルを求める
+ *
+ * @author MORIMORI0317
+ */
+public class MapLoadMetrics {
+
+    /**
+     * GSON
+     */
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * 出力Jsonのバージョン
+     */
+    private static final int DUMP_JSON_VERSION = 0;
+
+    /**
+     * 段階ごとに保持する直近の処理時間の数
+     */
+    private static final int SAMPLE_WINDOW = 100;
+
+    /**
+     * 表示するパーセンタイル
+     */
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    /**
+     * 試合用マップIDと統計のマップ
+     */
+    private final Map<String, MapStats> mapStats = new ConcurrentHashMap<>();
+
+    /**
+     * 読み込みに成功した際の処理時間を記録する
+     *
+     * @param mapId   試合用マップID
+     * @param timings 段階ごとの処理時間
+     */
+    public void record(@NotNull String mapId, @NotNull MapLoadTimings timings) {
+        this.mapStats.computeIfAbsent(mapId, id -> new MapStats()).record(timings);
+    }
+
+    /**
+     * 読み込みの失敗を記録する
+     *
+     * @param mapId 試合用マップID
+     */
+    public void recordFailure(@NotNull String mapId) {
+        this.mapStats.computeIfAbsent(mapId, id -> new MapStats()).recordFailure();
+    }
+
+    /**
+     * 全ての統計を取得
+     *
+     * @return 試合用マップIDと統計のマップ
+     */
+    @NotNull
+    @Unmodifiable
+    public Map<String, MapStats> getAllStats() {
+        return Collections.unmodifiableMap(this.mapStats);
+    }
+
+    /**
+     * 統計を全て破棄する
+     */
+    public void clear() {
+        this.mapStats.clear();
+    }
+
+    /**
+     * 統計をJsonへ変換
+     *
+     * @return Json
+     */
+    @NotNull
+    public JsonObject toJson() {
+        JsonObject jo = new JsonObject();
+        jo.addProperty("_version", DUMP_JSON_VERSION);
+        jo.addProperty("sample_window", SAMPLE_WINDOW);
+
+        JsonObject mapsJson = new JsonObject();
+        this.mapStats.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> mapsJson.add(entry.getKey(), entry.getValue().toJson()));
+        jo.add("maps", mapsJson);
+
+        return jo;
+    }
+
+    /**
+     * 統計をJsonファイルへ書き出す
+     *
+     * @param dumpFile 書き出し先のファイル
+     * @throws IOException 書き出し失敗
+     */
+    public void dump(@NotNull File dumpFile) throws IOException {
+        JsonObject jo = toJson();
+
+        Files.createDirectories(dumpFile.getAbsoluteFile().getParentFile().toPath());
+
+        // 書き込み途中のファイルを読まないように、一時ファイルへ書き込んでから置き換える
+        File tmpFile = new File(dumpFile.getAbsoluteFile().getParentFile(), dumpFile.getName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+            GSON.toJson(jo, writer);
+        }
+
+        Files.move(tmpFile.toPath(), dumpFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 表示するパーセンタイルを取得
+     *
+     * @return パーセンタイルの配列
+     */
+    public static double[] getPercentiles() {
+        return PERCENTILES.clone();
+    }
+
+    /**
+     * 1つの試合用マップの読み込み時間の統計
+     *
+     * @author MORIMORI0317
+     */
+    public static class MapStats {
+
+        /**
+         * 段階ごとの直近の処理時間 (ns) のリングバッファ
+         */
+        private final long[][] samples = new long[MapLoadStage.values().length][SAMPLE_WINDOW];
+
+        /**
+         * 段階ごとの記録された処理時間の総数
+         */
+        private final long[] sampleCounts = new long[MapLoadStage.values().length];
+
+        /**
+         * 読み込みに成功した回数
+         */
+        private long loadCount;
+
+        /**
+         * 読み込みに失敗した回数
+         */
+        private long failureCount;
+
+        private synchronized void record(MapLoadTimings timings) {
+            this.loadCount++;
+
+            for (MapLoadStage stage : MapLoadStage.values()) {
+                long nanos = timings.get(stage);
+
+                // 事前生成済みマップの構造物生成など、行われなかった段階は記録しない
+                if (nanos < 0) {
+                    continue;
+                }
+
+                int index = stage.ordinal();
+                this.samples[index][(int) (this.sampleCounts[index] % SAMPLE_WINDOW)] = nanos;
+                this.sampleCounts[index]++;
+            }
+        }
+
+        private synchronized void recordFailure() {
+            this.failureCount++;
+        }
+
+        /**
+         * 読み込みに成功した回数を取得
+         *
+         * @return 回数
+         */
+        public synchronized long getLoadCount() {
+            return this.loadCount;
+        }
+
+        /**
+         * 読み込みに失敗した回数を取得
+         *
+         * @return 回数
+         */
+        public synchronized long getFailureCount() {
+            return this.failureCount;
+        }
+
+        /**
+         * 段階の処理時間が記録された総数を取得
+         *
+         * @param stage 段階
+         * @return 総数
+         */
+        public synchronized long getSampleCount(@NotNull MapLoadStage stage) {
+            return this.sampleCounts[stage.ordinal()];
+        }
+
+        /**
+         * 直近の処理時間のパーセンタイルを取得
+         *
+         * @param stage      段階
+         * @param percentile パーセンタイル (0から100)
+         * @return 処理時間 (ns)、記録されていない場合は-1
+         */
+        public long getPercentile(@NotNull MapLoadStage stage, double percentile) {
+            long[] sorted = getSortedSamples(stage);
+
+            if (sorted.length == 0) {
+                return -1;
+            }
+
+            // 最近傍順位法
+            int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+            return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+        }
+
+        /**
+         * 統計をJsonへ変換
+         *
+         * @return Json
+         */
+        @NotNull
+        public JsonObject toJson() {
+            JsonObject jo = new JsonObject();
+            jo.addProperty("loads", getLoadCount());
+            jo.addProperty("failures", getFailureCount());
+
+            JsonObject stagesJson = new JsonObject();
+            for (MapLoadStage stage : MapLoadStage.values()) {
+                long[] sorted = getSortedSamples(stage);
+
+                if (sorted.length == 0) {
+                    continue;
+                }
+
+                JsonObject stageJson = new JsonObject();
+                stageJson.addProperty("count", getSampleCount(stage));
+                stageJson.addProperty("window", sorted.length);
+
+                for (double percentile : PERCENTILES) {
+                    stageJson.addProperty(String.format("p%d_ms", (int) percentile), getPercentile(stage, percentile) / 1_000_000d);
+                }
+
+                stageJson.addProperty("max_ms", sorted[sorted.length - 1] / 1_000_000d);
+                stagesJson.add(stage.getName(), stageJson);
+            }
+            jo.add("stages", stagesJson);
+
+            return jo;
+        }
+
+        private synchronized long[] getSortedSamples(MapLoadStage stage) {
+            int index = stage.ordinal();
+            long[] sorted = Arrays.copyOf(this.samples[index], (int) Math.min(this.sampleCounts[index], SAMPLE_WINDOW));
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
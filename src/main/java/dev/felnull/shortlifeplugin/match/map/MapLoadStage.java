@@ -0,0 +1,76 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 試合用マップの読み込みの段階
+ *
+ * @author MORIMORI0317
+ */
+public enum MapLoadStage {
+
+    /**
+     * スケマティックのデコード (ファイルの読み込みを含む)
+     */
+    DECODE("decode"),
+
+    /**
+     * スケマティックの内容のハッシュ計算
+     */
+    HASH("hash"),
+
+    /**
+     * マーカーの取得 (キャッシュ、インデックス、走査)
+     */
+    MARKER_SCAN("marker_scan"),
+
+    /**
+     * 構造物生成の範囲決定
+     */
+    PASTE_PLAN("paste_plan"),
+
+    /**
+     * ワールドフォルダーの複製
+     */
+    WORLD_COPY("world_copy"),
+
+    /**
+     * ワールドの生成と設定
+     */
+    CREATE_WORLD("create_world"),
+
+    /**
+     * 構造物生成 (Tick同期で処理した時間の合計)
+     */
+    PASTE("paste"),
+
+    /**
+     * 試合モードによるマップ検証
+     */
+    VALIDATION("validation"),
+
+    /**
+     * 読み込み開始から完了までの全体
+     */
+    TOTAL("total");
+
+    /**
+     * 名前
+     */
+    @NotNull
+    private final String name;
+
+    MapLoadStage(@NotNull String name) {
+        this.name = name;
+    }
+
+    /**
+     * 名前を取得
+     *
+     * @return 名前
+     */
+    @NotNull
+    public String getName() {
+        return this.name;
+    }
+}
@@ -0,0 +1,69 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 1回の試合用マップの読み込みにおける、段階ごとの処理時間<br/>
+ * 複数のスレッドから記録されるため、スレッドセーフ
+ *
+ * @author MORIMORI0317
+ */
+public class MapLoadTimings {
+
+    /**
+     * 段階ごとの処理時間 (ns)<br/>
+     * 記録されていない段階は-1
+     */
+    private final AtomicLongArray stageNanos = new AtomicLongArray(MapLoadStage.values().length);
+
+    /**
+     * コンストラクタ
+     */
+    public MapLoadTimings() {
+        for (int i = 0; i < this.stageNanos.length(); i++) {
+            this.stageNanos.set(i, -1);
+        }
+    }
+
+    /**
+     * 処理時間を記録する<br/>
+     * 既に記録されている場合は加算する
+     *
+     * @param stage 段階
+     * @param nanos 処理時間 (ns)
+     */
+    public void record(@NotNull MapLoadStage stage, long nanos) {
+        this.stageNanos.accumulateAndGet(stage.ordinal(), nanos, (prev, add) -> prev < 0 ? add : prev + add);
+    }
+
+    /**
+     * 処理を行い、処理時間を記録する
+     *
+     * @param stage 段階
+     * @param task  処理
+     * @param <T>   処理結果の型
+     * @return 処理結果
+     */
+    public <T> T time(@NotNull MapLoadStage stage, @NotNull Supplier<T> task) {
+        long startTime = System.nanoTime();
+
+        try {
+            return task.get();
+        } finally {
+            record(stage, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * 処理時間を取得する
+     *
+     * @param stage 段階
+     * @return 処理時間 (ns)、記録されていない場合は-1
+     */
+    public long get(@NotNull MapLoadStage stage) {
+        return this.stageNanos.get(stage.ordinal());
+    }
+}
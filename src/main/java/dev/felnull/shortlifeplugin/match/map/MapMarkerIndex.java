@@ -0,0 +1,176 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.hash.HashCode;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sk89q.worldedit.math.BlockVector3;
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.utils.SLFiles;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.BlockFace;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * スケマティックごとのマーカーの集まりを保存する永続インデックス<br/>
+ * スケマティックの内容のハッシュと一緒に保存し、ハッシュが一致する場合のみ利用する
+ *
+ * @author MORIMORI0317
+ */
+public class MapMarkerIndex {
+
+    /**
+     * GSON
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 保存Jsonのバージョン
+     */
+    private static final int SAVE_JSON_VERSION = 0;
+
+    /**
+     * ジグソーマーカーの種類名
+     */
+    private static final String JIGSAW_MARKER_TYPE = "jigsaw";
+
+    /**
+     * インデックスからマーカーの集まりを読み込む
+     *
+     * @param schematicId スケマティックのID
+     * @param hashCode    スケマティックの内容のハッシュ
+     * @return ハッシュが一致するマーカーの集まり、存在しないか一致しない場合は空
+     */
+    public Optional<MapMarkerSet> load(@NotNull String schematicId, @NotNull HashCode hashCode) {
+        File indexFile = getIndexFile(schematicId);
+
+        if (!indexFile.exists() || indexFile.isDirectory()) {
+            return Optional.empty();
+        }
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+            JsonObject jo = GSON.fromJson(reader, JsonObject.class);
+
+            if (jo.get("_version").getAsInt() != SAVE_JSON_VERSION || !hashCode.toString().equals(jo.get("hash").getAsString())) {
+                return Optional.empty();
+            }
+
+            return Optional.of(markerSetFromJson(jo.getAsJsonArray("markers")));
+        } catch (IOException | RuntimeException e) {
+            SLUtils.reportError(e, MsgHandler.getFormatted("system-marker-index-load-failed", schematicId));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * マーカーの集まりをインデックスへ保存する
+     *
+     * @param schematicId スケマティックのID
+     * @param hashCode    スケマティックの内容のハッシュ
+     * @param markerSet   マーカーの集まり
+     */
+    public void save(@NotNull String schematicId, @NotNull HashCode hashCode, @NotNull MapMarkerSet markerSet) {
+        File indexFile = getIndexFile(schematicId);
+
+        JsonObject jo = new JsonObject();
+        jo.addProperty("_version", SAVE_JSON_VERSION);
+        jo.addProperty("hash", hashCode.toString());
+        jo.add("markers", markerSetToJson(markerSet));
+
+        try {
+            Files.createDirectories(indexFile.getParentFile().toPath());
+
+            // 書き込み途中のファイルを読まないように、一時ファイルへ書き込んでから置き換える
+            File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+                GSON.toJson(jo, writer);
+            }
+
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            SLUtils.reportError(e, MsgHandler.getFormatted("system-marker-index-save-failed", schematicId));
+        }
+    }
+
+    private File getIndexFile(@NotNull String schematicId) {
+        return new File(SLFiles.markerIndexFolder(), schematicId + ".json");
+    }
+
+    /**
+     * マーカーの集まりをJsonへ変換
+     *
+     * @param markerSet マーカーの集まり
+     * @return マーカーのJson配列
+     */
+    static JsonArray markerSetToJson(@NotNull MapMarkerSet markerSet) {
+        JsonArray markersJson = new JsonArray();
+
+        for (MapMarker marker : markerSet.makers().values()) {
+            if (!(marker instanceof JigsawMapMarker jigsawMapMarker)) {
+                throw new IllegalArgumentException("未対応のマーカー: " + marker);
+            }
+
+            JsonObject markerJson = new JsonObject();
+            markerJson.addProperty("type", JIGSAW_MARKER_TYPE);
+            markerJson.addProperty("name", jigsawMapMarker.name().asString());
+            markerJson.addProperty("point_name", jigsawMapMarker.pointName().asString());
+            markerJson.addProperty("replace_block_id", jigsawMapMarker.replaceBlockId().asString());
+
+            JsonArray positionJson = new JsonArray();
+            positionJson.add(jigsawMapMarker.position().getX());
+            positionJson.add(jigsawMapMarker.position().getY());
+            positionJson.add(jigsawMapMarker.position().getZ());
+            markerJson.add("position", positionJson);
+
+            markerJson.addProperty("direction", jigsawMapMarker.direction().name());
+            markersJson.add(markerJson);
+        }
+
+        return markersJson;
+    }
+
+    /**
+     * Jsonからマーカーの集まりを作成
+     *
+     * @param markersJson マーカーのJson配列
+     * @return マーカーの集まり
+     */
+    static MapMarkerSet markerSetFromJson(@NotNull JsonArray markersJson) {
+        ImmutableMultimap.Builder<NamespacedKey, MapMarker> mapMarkersBuilder = new ImmutableMultimap.Builder<>();
+
+        for (JsonElement markerElement : markersJson) {
+            JsonObject markerJson = markerElement.getAsJsonObject();
+
+            if (!JIGSAW_MARKER_TYPE.equals(markerJson.get("type").getAsString())) {
+                throw new IllegalStateException("未対応のマーカーの種類: " + markerJson.get("type").getAsString());
+            }
+
+            NamespacedKey name = parseKey(markerJson.get("name").getAsString());
+            NamespacedKey pointName = parseKey(markerJson.get("point_name").getAsString());
+            NamespacedKey replaceBlockId = parseKey(markerJson.get("replace_block_id").getAsString());
+
+            JsonArray positionJson = markerJson.getAsJsonArray("position");
+            BlockVector3 position = BlockVector3.at(positionJson.get(0).getAsInt(), positionJson.get(1).getAsInt(), positionJson.get(2).getAsInt());
+
+            BlockFace direction = BlockFace.valueOf(markerJson.get("direction").getAsString());
+
+            mapMarkersBuilder.put(pointName, new JigsawMapMarker(name, pointName, replaceBlockId, position, direction));
+        }
+
+        return new MapMarkerSet(mapMarkersBuilder.build());
+    }
+
+    private static NamespacedKey parseKey(String key) {
+        return Objects.requireNonNull(NamespacedKey.fromString(key));
+    }
+}
@@ -0,0 +1,233 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.bukkit.NamespacedKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * クリップボードからマーカーを探すクラス<br/>
+ * ブロックエンティティの位置が分かる場合はその位置のみを調べ、分からない場合はX方向のスラブに分割して並列に全体を走査する
+ *
+ * @author MORIMORI0317
+ */
+public final class MapMarkerScanner {
+
+    /**
+     * これ以下の体積のスラブは分割せずに走査する
+     */
+    private static final long SLAB_MIN_VOLUME = 1 << 18;
+
+    /**
+     * ジグソーブロックの種類
+     */
+    private static final BlockType JIGSAW_BLOCK_TYPE = Objects.requireNonNull(BlockTypes.JIGSAW);
+
+    /**
+     * パレット内のジグソーブロックの状態の接頭辞
+     */
+    private static final String JIGSAW_PALETTE_PREFIX = JIGSAW_BLOCK_TYPE.getId() + "[";
+
+    /**
+     * 走査と同じ順番(X,Y,Z)に並べる比較
+     */
+    private static final Comparator<BlockVector3> SCAN_ORDER = Comparator.comparingInt(BlockVector3::getX)
+            .thenComparingInt(BlockVector3::getY)
+            .thenComparingInt(BlockVector3::getZ);
+
+    private MapMarkerScanner() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 読み込んだスケマティックからマーカーの集まりを並列に取得する<br/>
+     * 結果のマーカーの順番は、X,Y,Zの順で一つずつ走査した場合と同じになる
+     *
+     * @param forkJoinPool 走査に使用するプール
+     * @param clipboard    スケマティックが読み込まれたクリップボード
+     * @return マーカーの集まり
+     */
+    public static MapMarkerSet scan(@NotNull ForkJoinPool forkJoinPool, @NotNull Clipboard clipboard) {
+        BlockVector3 sizeMin = clipboard.getMinimumPoint();
+        BlockVector3 sizeMax = clipboard.getMaximumPoint();
+
+        ImmutableMultimap<NamespacedKey, MapMarker> markers = forkJoinPool.invoke(new SlabScanTask(clipboard, sizeMin.getX(), sizeMax.getX()));
+        return new MapMarkerSet(markers);
+    }
+
+    /**
+     * ブロックエンティティの位置のみを調べて、マーカーの集まりを取得する<br/>
+     * 処理時間はマップの体積ではなくブロックエンティティの数に比例し、結果は{@link #scan(ForkJoinPool, Clipboard)}と一致する
+     *
+     * @param clipboard            スケマティックが読み込まれたクリップボード
+     * @param blockEntityPositions ブロックエンティティの位置 (クリップボードの最小座標からの相対座標)
+     * @return マーカーの集まり
+     */
+    public static MapMarkerSet collect(@NotNull Clipboard clipboard, @NotNull List<BlockVector3> blockEntityPositions) {
+        BlockVector3 sizeMin = clipboard.getMinimumPoint();
+        BlockVector3 sizeMax = clipboard.getMaximumPoint();
+        BlockVector3 origin = clipboard.getOrigin();
+
+        List<BlockVector3> positions = blockEntityPositions.stream()
+                .map(sizeMin::add)
+                // 走査と同じく、最大座標の面は含めない
+                .filter(pos -> pos.getX() < sizeMax.getX() && pos.getY() < sizeMax.getY() && pos.getZ() < sizeMax.getZ())
+                .filter(pos -> pos.getX() >= sizeMin.getX() && pos.getY() >= sizeMin.getY() && pos.getZ() >= sizeMin.getZ())
+                .distinct()
+                .sorted(SCAN_ORDER)
+                .toList();
+
+        ImmutableMultimap.Builder<NamespacedKey, MapMarker> mapMarkersBuilder = new ImmutableMultimap.Builder<>();
+
+        for (BlockVector3 pos : positions) {
+            BlockState block = clipboard.getBlock(pos);
+
+            if (block.getBlockType() == JIGSAW_BLOCK_TYPE) {
+                JigsawMapMarker.of(pos.subtract(origin), clipboard.getFullBlock(pos), BukkitAdapter.adapt(block))
+                        .ifPresent(jigsawMapMarker -> mapMarkersBuilder.put(jigsawMapMarker.pointName(), jigsawMapMarker));
+            }
+        }
+
+        return new MapMarkerSet(mapMarkersBuilder.build());
+    }
+
+    /**
+     * Spongeスケマティックのタグから、マーカーの候補となるブロックエンティティの位置を取得する<br/>
+     * パレットにジグソーブロックが存在しない場合は、ブロックエンティティを調べずに空のリストを返す
+     *
+     * @param schematicTag スケマティックのルートタグ
+     * @return ブロックエンティティの位置 (最小座標からの相対座標)、対応していない形式の場合は空
+     */
+    public static Optional<List<BlockVector3>> findBlockEntityPositions(@NotNull CompoundTag schematicTag) {
+        Map<String, Tag> schematic = schematicTag.getValue();
+        String blockEntitiesKey = switch (schematicTag.getInt("Version")) {
+            case 1 -> "TileEntities";
+            case 2 -> "BlockEntities";
+            default -> null;
+        };
+
+        if (blockEntitiesKey == null || !(schematic.get("Palette") instanceof CompoundTag paletteTag)) {
+            return Optional.empty();
+        }
+
+        boolean jigsawExists = paletteTag.getValue().keySet().stream()
+                .anyMatch(state -> state.equals(JIGSAW_BLOCK_TYPE.getId()) || state.startsWith(JIGSAW_PALETTE_PREFIX));
+
+        if (!jigsawExists) {
+            return Optional.of(ImmutableList.of());
+        }
+
+        ImmutableList.Builder<BlockVector3> positionsBuilder = ImmutableList.builder();
+
+        for (CompoundTag blockEntityTag : schematicTag.getList(blockEntitiesKey, CompoundTag.class)) {
+            int[] pos = blockEntityTag.getIntArray("Pos");
+
+            // 位置が不正な場合は、全体を走査する
+            if (pos.length != 3) {
+                return Optional.empty();
+            }
+
+            positionsBuilder.add(BlockVector3.at(pos[0], pos[1], pos[2]));
+        }
+
+        return Optional.of(positionsBuilder.build());
+    }
+
+    /**
+     * X方向の範囲を走査するタスク
+     *
+     * @author MORIMORI0317
+     */
+    private static class SlabScanTask extends RecursiveTask<ImmutableMultimap<NamespacedKey, MapMarker>> {
+
+        /**
+         * 走査対象のクリップボード
+         */
+        private final transient Clipboard clipboard;
+
+        /**
+         * 走査開始X座標
+         */
+        private final int startX;
+
+        /**
+         * 走査終了X座標 (この座標を含まない)
+         */
+        private final int endX;
+
+        /**
+         * コンストラクタ
+         *
+         * @param clipboard クリップボード
+         * @param startX    走査開始X座標
+         * @param endX      走査終了X座標 (この座標を含まない)
+         */
+        SlabScanTask(Clipboard clipboard, int startX, int endX) {
+            this.clipboard = clipboard;
+            this.startX = startX;
+            this.endX = endX;
+        }
+
+        @Override
+        protected ImmutableMultimap<NamespacedKey, MapMarker> compute() {
+            BlockVector3 sizeMin = this.clipboard.getMinimumPoint();
+            BlockVector3 sizeMax = this.clipboard.getMaximumPoint();
+            long slabVolume = (long) (this.endX - this.startX) * (sizeMax.getY() - sizeMin.getY()) * (sizeMax.getZ() - sizeMin.getZ());
+
+            if (this.endX - this.startX <= 1 || slabVolume <= SLAB_MIN_VOLUME) {
+                return scanSlab(sizeMin, sizeMax);
+            }
+
+            int middleX = (this.startX + this.endX) >>> 1;
+            SlabScanTask left = new SlabScanTask(this.clipboard, this.startX, middleX);
+            SlabScanTask right = new SlabScanTask(this.clipboard, middleX, this.endX);
+            left.fork();
+            ImmutableMultimap<NamespacedKey, MapMarker> rightMarkers = right.compute();
+            ImmutableMultimap<NamespacedKey, MapMarker> leftMarkers = left.join();
+
+            // 左側を先に追加することで、一つずつ走査した場合と同じ順番を保つ
+            return new ImmutableMultimap.Builder<NamespacedKey, MapMarker>()
+                    .putAll(leftMarkers)
+                    .putAll(rightMarkers)
+                    .build();
+        }
+
+        private ImmutableMultimap<NamespacedKey, MapMarker> scanSlab(BlockVector3 sizeMin, BlockVector3 sizeMax) {
+            ImmutableMultimap.Builder<NamespacedKey, MapMarker> mapMarkersBuilder = new ImmutableMultimap.Builder<>();
+            BlockVector3 origin = this.clipboard.getOrigin();
+
+            for (int x = this.startX; x < this.endX; x++) {
+                for (int y = sizeMin.getY(); y < sizeMax.getY(); y++) {
+                    for (int z = sizeMin.getZ(); z < sizeMax.getZ(); z++) {
+                        BlockVector3 pos = BlockVector3.at(x, y, z);
+                        BlockState block = this.clipboard.getBlock(pos);
+
+                        // ブロックの種類で比較し、Bukkitのブロックデータへの変換はジグソーのみ行う
+                        if (block.getBlockType() == JIGSAW_BLOCK_TYPE) {
+                            JigsawMapMarker.of(pos.subtract(origin), this.clipboard.getFullBlock(pos), BukkitAdapter.adapt(block))
+                                    .ifPresent(jigsawMapMarker -> mapMarkersBuilder.put(jigsawMapMarker.pointName(), jigsawMapMarker));
+                        }
+                    }
+                }
+            }
+
+            return mapMarkersBuilder.build();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * 地点名ごとのスポーン地点の表<br/>
+ * マップワールドの作成時に一度だけマーカーのワールド座標と向きを求めて配列に保持し、
+ * リスポーン時は添字を選ぶだけで、返す{@link Location}以外を生成しないようにする
+ *
+ * @author MORIMORI0317
+ */
+public final class MapSpawnTable {
+
+    /**
+     * スポーン地点のワールド
+     */
+    @NotNull
+    private final World world;
+
+    /**
+     * マーカー
+     */
+    @NotNull
+    private final MapMarker[] markers;
+
+    /**
+     * スポーン地点のX座標
+     */
+    private final double[] xs;
+
+    /**
+     * スポーン地点のY座標
+     */
+    private final double[] ys;
+
+    /**
+     * スポーン地点のZ座標
+     */
+    private final double[] zs;
+
+    /**
+     * スポーン地点のヨー
+     */
+    private final float[] yaws;
+
+    /**
+     * スポーン地点のピッチ
+     */
+    private final float[] pitches;
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapWorld 試合用マップワールド
+     * @param markers  マーカー (1つ以上)
+     */
+    protected MapSpawnTable(@NotNull MatchMapWorld mapWorld, @NotNull Collection<MapMarker> markers) {
+        int size = markers.size();
+
+        this.world = mapWorld.getWorld();
+        this.markers = markers.toArray(new MapMarker[0]);
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.zs = new double[size];
+        this.yaws = new float[size];
+        this.pitches = new float[size];
+
+        // 向きからヨーとピッチを求めるために使用する
+        Location directionLocation = new Location(this.world, 0, 0, 0);
+
+        for (int i = 0; i < size; i++) {
+            MapMarker marker = this.markers[i];
+            BlockVector3 spawnPos = mapWorld.offsetCorrection(marker.getPosition());
+            directionLocation.setDirection(marker.getDirection().getDirection());
+
+            this.xs[i] = spawnPos.getX() + 0.5f;
+            this.ys[i] = spawnPos.getY();
+            this.zs[i] = spawnPos.getZ() + 0.5f;
+            this.yaws[i] = directionLocation.getYaw();
+            this.pitches[i] = directionLocation.getPitch();
+        }
+    }
+
+    /**
+     * スポーン地点の数を取得
+     *
+     * @return スポーン地点の数
+     */
+    public int size() {
+        return this.markers.length;
+    }
+
+    /**
+     * ランダムにスポーン地点の添字を選ぶ
+     *
+     * @param random ランダム
+     * @return 添字
+     */
+    public int pickIndex(@NotNull Random random) {
+        return this.markers.length == 1 ? 0 : random.nextInt(this.markers.length);
+    }
+
+    /**
+     * ランダムにスポーン地点を選ぶ
+     *
+     * @param random ランダム
+     * @return スポーン地点
+     */
+    public Location pickLocation(@NotNull Random random) {
+        return createLocation(pickIndex(random));
+    }
+
+    /**
+     * スポーン地点を作成
+     *
+     * @param index 添字
+     * @return スポーン地点
+     */
+    public Location createLocation(int index) {
+        return new Location(this.world, this.xs[index], this.ys[index], this.zs[index], this.yaws[index], this.pitches[index]);
+    }
+
+    /**
+     * マーカーを取得
+     *
+     * @param index 添字
+     * @return マーカー
+     */
+    @NotNull
+    public MapMarker getMarker(int index) {
+        return this.markers[index];
+    }
+
+    public double getX(int index) {
+        return this.xs[index];
+    }
+
+    public double getY(int index) {
+        return this.ys[index];
+    }
+
+    public double getZ(int index) {
+        return this.zs[index];
+    }
+}
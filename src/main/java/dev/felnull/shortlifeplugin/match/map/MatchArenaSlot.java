@@ -0,0 +1,178 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 共有アリーナワールド内の区画<br/>
+ * 1つのマップインスタンスが使用し、区画の中心を原点としてマップを生成する
+ *
+ * @author MORIMORI0317
+ */
+public class MatchArenaSlot {
+
+    /**
+     * 区画を管理するアリーナワールド
+     */
+    @NotNull
+    private final MatchArenaWorld arenaWorld;
+
+    /**
+     * 区画番号
+     */
+    private final int index;
+
+    /**
+     * 区画の原点(中心)
+     */
+    @NotNull
+    private final BlockVector3 origin;
+
+    /**
+     * 区画の一辺の長さ
+     */
+    private final int size;
+
+    /**
+     * 構造物を生成する範囲(ワールド座標)<br/>
+     * 解放時にこの範囲のみを片付ける
+     */
+    @Nullable
+    private volatile CuboidRegion usedRegion;
+
+    /**
+     * 解放済みかどうか
+     */
+    private boolean released;
+
+    /**
+     * コンストラクタ
+     *
+     * @param arenaWorld 区画を管理するアリーナワールド
+     * @param index      区画番号
+     * @param origin     区画の原点
+     * @param size       区画の一辺の長さ
+     */
+    protected MatchArenaSlot(@NotNull MatchArenaWorld arenaWorld, int index, @NotNull BlockVector3 origin, int size) {
+        this.arenaWorld = arenaWorld;
+        this.index = index;
+        this.origin = origin;
+        this.size = size;
+    }
+
+    /**
+     * 区画を解放する<br/>
+     * 生成した構造物を片付けた後、別のマップインスタンスが使用できるようになる
+     */
+    protected void release() {
+        if (this.released) {
+            return;
+        }
+
+        this.released = true;
+        this.arenaWorld.release(this);
+    }
+
+    /**
+     * 指定した位置が区画内かどうか
+     *
+     * @param location 位置
+     * @return 区画内であればtrue
+     */
+    public boolean contains(@NotNull Location location) {
+        int halfSize = this.size / 2;
+        return location.getBlockX() >= this.origin.getX() - halfSize && location.getBlockX() < this.origin.getX() + halfSize
+                && location.getBlockZ() >= this.origin.getZ() - halfSize && location.getBlockZ() < this.origin.getZ() + halfSize;
+    }
+
+    /**
+     * 指定した範囲が水平方向で区画内に収まるかどうか
+     *
+     * @param region 範囲 (ワールド座標)
+     * @return 収まる場合はtrue
+     */
+    public boolean contains(@NotNull Region region) {
+        int halfSize = this.size / 2;
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        return min.getX() >= this.origin.getX() - halfSize && max.getX() < this.origin.getX() + halfSize
+                && min.getZ() >= this.origin.getZ() - halfSize && max.getZ() < this.origin.getZ() + halfSize;
+    }
+
+    /**
+     * 指定した範囲を水平方向で区画内に切り詰める<br/>
+     * 片付けの際に、隣の区画へ触れないようにするため
+     *
+     * @param region 範囲 (ワールド座標)
+     * @return 切り詰めた範囲、区画と重ならない場合はnull
+     */
+    @Nullable
+    public CuboidRegion clamp(@NotNull Region region) {
+        int halfSize = this.size / 2;
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        BlockVector3 clampedMin = BlockVector3.at(Math.max(min.getX(), this.origin.getX() - halfSize), min.getY(),
+                Math.max(min.getZ(), this.origin.getZ() - halfSize));
+        BlockVector3 clampedMax = BlockVector3.at(Math.min(max.getX(), this.origin.getX() + halfSize - 1), max.getY(),
+                Math.min(max.getZ(), this.origin.getZ() + halfSize - 1));
+
+        if (clampedMin.getX() > clampedMax.getX() || clampedMin.getZ() > clampedMax.getZ()) {
+            return null;
+        }
+
+        return new CuboidRegion(clampedMin, clampedMax);
+    }
+
+    /**
+     * 区画の最小座標を取得
+     *
+     * @param minY ワールドの最低高度
+     * @return 最小座標
+     */
+    public BlockVector3 getMinimumPoint(int minY) {
+        int halfSize = this.size / 2;
+        return BlockVector3.at(this.origin.getX() - halfSize, minY, this.origin.getZ() - halfSize);
+    }
+
+    /**
+     * 区画の最大座標を取得
+     *
+     * @param maxY ワールドの最高高度
+     * @return 最大座標
+     */
+    public BlockVector3 getMaximumPoint(int maxY) {
+        int halfSize = this.size / 2;
+        return BlockVector3.at(this.origin.getX() + halfSize - 1, maxY, this.origin.getZ() + halfSize - 1);
+    }
+
+    /**
+     * ワールドガードのリージョンIDを取得
+     *
+     * @return リージョンID
+     */
+    public String getRegionId() {
+        return "arena_slot_" + this.index;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    @NotNull
+    public BlockVector3 getOrigin() {
+        return this.origin;
+    }
+
+    @Nullable
+    public CuboidRegion getUsedRegion() {
+        return this.usedRegion;
+    }
+
+    protected void setUsedRegion(@Nullable CuboidRegion usedRegion) {
+        this.usedRegion = usedRegion;
+    }
+}
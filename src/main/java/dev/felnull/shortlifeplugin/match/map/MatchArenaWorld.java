@@ -0,0 +1,348 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.base.Suppliers;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.SLConfig;
+import dev.felnull.shortlifeplugin.utils.MatchUtils;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static dev.felnull.shortlifeplugin.match.map.MatchMapHandler.WORLD_NAME_PREFIX;
+
+/**
+ * 複数のマップインスタンスで共有するアリーナワールド<br/>
+ * 1つのワールドを十分に離れた区画に分割し、マップインスタンスごとに区画を割り当てることで、ワールドの作成と削除を省略する<br/>
+ * このクラスはスレッドセーフではないので、サーバーTickからアクセスしてください。
+ *
+ * @author MORIMORI0317
+ */
+public class MatchArenaWorld {
+
+    /**
+     * アリーナワールドのID
+     */
+    private static final String ARENA_WORLD_ID = "arena";
+
+    /**
+     * 区画を片付ける際の分割サイズ (ブロック)
+     */
+    private static final int CLEAR_SLICE_SIZE = 16;
+
+    /**
+     * Tickに同期して処理を行うExecutor
+     */
+    private final Executor tickExecutor = Bukkit.getScheduler().getMainThreadExecutor(SLUtils.getSLPlugin());
+
+    /**
+     * マップのインスタンスのローダー
+     */
+    @NotNull
+    private final MatchMapInstanceLoader mapInstanceLoader;
+
+    /**
+     * 用意したアリーナワールド<br/>
+     * 起動中に一度だけ作成する
+     */
+    private final Supplier<CompletableFuture<World>> world = Suppliers.memoize(this::create);
+
+    /**
+     * 空いている区画番号
+     */
+    private final NavigableSet<Integer> freeSlotIndexes = new TreeSet<>();
+
+    /**
+     * 使用中の区画
+     */
+    private final Set<MatchArenaSlot> usedSlots = new HashSet<>();
+
+    /**
+     * 次に作成する区画番号
+     */
+    private int nextSlotIndex;
+
+    /**
+     * 区画の間隔<br/>
+     * 途中で設定が変わっても区画が重ならないように、最初の割り当て時に決定する
+     */
+    private int slotSpacing = -1;
+
+    /**
+     * 破棄済みかどうか
+     */
+    private boolean disposed;
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapInstanceLoader マップのインスタンスのローダー
+     */
+    protected MatchArenaWorld(@NotNull MatchMapInstanceLoader mapInstanceLoader) {
+        this.mapInstanceLoader = mapInstanceLoader;
+    }
+
+    /**
+     * アリーナワールドを取得<br/>
+     * 作成されていない場合は作成する
+     *
+     * @return アリーナワールドのCompletableFuture
+     */
+    public CompletableFuture<World> get() {
+        return this.world.get();
+    }
+
+    /**
+     * 指定したワールドがアリーナワールドかどうか<br/>
+     * アリーナワールドが作成されていない場合でも、作成は行わない
+     *
+     * @param world ワールド
+     * @return アリーナワールドの場合はtrue
+     */
+    public boolean isArenaWorld(@NotNull World world) {
+        return (WORLD_NAME_PREFIX + ARENA_WORLD_ID).equals(world.getName());
+    }
+
+    /**
+     * 空いている区画を割り当てる
+     *
+     * @return 区画
+     */
+    public MatchArenaSlot allocate() {
+        if (this.slotSpacing < 0) {
+            this.slotSpacing = SLConfig.getArenaSlotSpacing();
+        }
+
+        Integer freeIndex = this.freeSlotIndexes.pollFirst();
+        int index = freeIndex != null ? freeIndex : this.nextSlotIndex++;
+
+        MatchArenaSlot slot = new MatchArenaSlot(this, index, BlockVector3.at(index * this.slotSpacing, 0, 0), this.slotSpacing);
+        this.usedSlots.add(slot);
+        return slot;
+    }
+
+    /**
+     * 区画をワールドガードで保護する<br/>
+     * 区画ごとのリージョンを作成し、ワールド全体のリージョンは変更しない
+     *
+     * @param arenaWorld アリーナワールド
+     * @param slot       区画
+     */
+    protected void protectSlot(@NotNull World arenaWorld, @NotNull MatchArenaSlot slot) {
+        RegionManager regionManager = getRegionManager(arenaWorld);
+
+        ProtectedRegion region = new ProtectedCuboidRegion(slot.getRegionId(),
+                slot.getMinimumPoint(arenaWorld.getMinHeight()), slot.getMaximumPoint(arenaWorld.getMaxHeight() - 1));
+        MatchMapInstanceLoader.setWorldGuardRegionFlag(region);
+        regionManager.addRegion(region);
+    }
+
+    /**
+     * 使用中の区画数を取得
+     *
+     * @return 区画数
+     */
+    public int getUsedSlotCount() {
+        return this.usedSlots.size();
+    }
+
+    /**
+     * 破棄処理<br/>
+     * ワールドに残るプレイヤーを退出させ、ワールドを削除する
+     */
+    public void dispose() {
+        this.disposed = true;
+
+        CompletableFuture<World> worldCompletableFuture = get();
+        if (!worldCompletableFuture.isDone() || worldCompletableFuture.isCompletedExceptionally()) {
+            worldCompletableFuture.cancel(false);
+            return;
+        }
+
+        World arenaWorld = worldCompletableFuture.join();
+        arenaWorld.getPlayers().forEach(player -> MatchUtils.teleportToLeave(player, Optional.of(arenaWorld)));
+
+        File worldFolder = arenaWorld.getWorldFolder();
+        Bukkit.unloadWorld(arenaWorld, false);
+        this.mapInstanceLoader.getWorldDeletionService().delete(worldFolder, new ReentrantLock());
+    }
+
+    /**
+     * 区画を解放する<br/>
+     * 区画に残るプレイヤーを退出させ、生成した構造物とエンティティを片付けてから空き区画に戻す
+     *
+     * @param slot 区画
+     */
+    protected void release(@NotNull MatchArenaSlot slot) {
+        if (this.disposed || !this.usedSlots.remove(slot)) {
+            return;
+        }
+
+        CompletableFuture<World> worldCompletableFuture = get();
+        if (!worldCompletableFuture.isDone() || worldCompletableFuture.isCompletedExceptionally()) {
+            // ワールドが作成されていなければ、構造物も生成されていない
+            this.freeSlotIndexes.add(slot.getIndex());
+            return;
+        }
+
+        World arenaWorld = worldCompletableFuture.join();
+
+        // 区画に残るプレイヤーを退出させる
+        arenaWorld.getPlayers().stream()
+                .filter(player -> slot.contains(player.getLocation()))
+                .forEach(player -> MatchUtils.teleportToLeave(player, Optional.of(arenaWorld)));
+
+        // 隣の区画を片付けないように、区画内に切り詰める
+        CuboidRegion usedRegion = slot.getUsedRegion();
+        CuboidRegion clearRegion = usedRegion != null ? slot.clamp(usedRegion) : null;
+        List<Runnable> clearTasks = new ArrayList<>();
+
+        clearTasks.add(() -> removeEntities(arenaWorld, slot));
+
+        if (clearRegion != null) {
+            clearTasks.addAll(createClearTasks(arenaWorld, clearRegion));
+        }
+
+        this.mapInstanceLoader.getPasteScheduler().schedule(clearTasks, () -> MatchMapLoadScheduler.BACKGROUND_PRIORITY)
+                .whenCompleteAsync((unused, throwable) -> {
+                    if (throwable != null) {
+                        // 片付けに失敗した区画は再利用しない
+                        SLUtils.reportError(throwable, MsgHandler.getFormatted("system-arena-slot-clear-failed", slot.getIndex()));
+                        return;
+                    }
+
+                    RegionManager regionManager = WorldGuard.getInstance().getPlatform().getRegionContainer().get(BukkitAdapter.adapt(arenaWorld));
+                    if (regionManager != null) {
+                        regionManager.removeRegion(slot.getRegionId());
+                    }
+
+                    if (!this.disposed) {
+                        this.freeSlotIndexes.add(slot.getIndex());
+                    }
+                }, this.tickExecutor);
+    }
+
+    /**
+     * アリーナワールドを作成する<br/>
+     * テンプレートワールドを複製して作成する
+     *
+     * @return アリーナワールドのCompletableFuture
+     */
+    private CompletableFuture<World> create() {
+        String worldName = WORLD_NAME_PREFIX + ARENA_WORLD_ID;
+
+        return this.mapInstanceLoader.getWorldTemplate().get().thenApplyAsync(worldTemplateFile -> {
+            /* IO用スレッドでテンプレートワールドファイルをコピー */
+
+            File worldFolder = new File(worldName);
+
+            if (worldFolder.exists()) {
+                throw new RuntimeException("既に同じ名前のワールドフォルダーが存在しています");
+            }
+
+            try {
+                this.mapInstanceLoader.getWorldFolderCloner().clone(worldTemplateFile, worldFolder);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            return worldFolder;
+        }, this.mapInstanceLoader.getIoExecutor()).thenApplyAsync(worldFolder -> {
+            /* Tick同期でワールドを生成 */
+
+            // ワールドのTick処理中確認
+            if (Bukkit.isTickingWorlds()) {
+                throw new RuntimeException("ワールドのTick処理中です");
+            }
+
+            WorldCreator worldCreator = this.mapInstanceLoader.matchWorldCreator(worldName, ARENA_WORLD_ID);
+            World arenaWorld = worldCreator.createWorld();
+
+            if (arenaWorld == null) {
+                throw new RuntimeException("ワールドの生成に失敗");
+            }
+
+            this.mapInstanceLoader.applyGameRules(arenaWorld);
+
+            SLUtils.getLogger().info("アリーナワールドの生成完了");
+            return arenaWorld;
+        }, this.tickExecutor);
+    }
+
+    private static RegionManager getRegionManager(@NotNull World world) {
+        RegionManager regionManager = WorldGuard.getInstance().getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+
+        if (regionManager == null) {
+            throw new RuntimeException(MsgHandler.get("system-worldguard-instance-failed"));
+        }
+
+        return regionManager;
+    }
+
+    /**
+     * 区画内のプレイヤー以外のエンティティを削除する
+     *
+     * @param arenaWorld アリーナワールド
+     * @param slot       区画
+     */
+    private static void removeEntities(@NotNull World arenaWorld, @NotNull MatchArenaSlot slot) {
+        BlockVector3 min = slot.getMinimumPoint(arenaWorld.getMinHeight());
+        BlockVector3 max = slot.getMaximumPoint(arenaWorld.getMaxHeight());
+        BoundingBox box = new BoundingBox(min.getX(), min.getY(), min.getZ(), max.getX() + 1, max.getY(), max.getZ() + 1);
+
+        arenaWorld.getNearbyEntities(box, entity -> !(entity instanceof Player)).forEach(Entity::remove);
+    }
+
+    /**
+     * 生成した範囲を空気で埋める処理を、チャンク単位に分割して作成する
+     *
+     * @param arenaWorld アリーナワールド
+     * @param usedRegion 生成した範囲
+     * @return 分割された処理
+     */
+    private static List<Runnable> createClearTasks(@NotNull World arenaWorld, @NotNull CuboidRegion usedRegion) {
+        BlockVector3 min = usedRegion.getMinimumPoint();
+        BlockVector3 max = usedRegion.getMaximumPoint();
+        List<Runnable> tasks = new ArrayList<>();
+
+        for (int x = min.getX(); x <= max.getX(); x += CLEAR_SLICE_SIZE) {
+            for (int z = min.getZ(); z <= max.getZ(); z += CLEAR_SLICE_SIZE) {
+                CuboidRegion slice = new CuboidRegion(BlockVector3.at(x, min.getY(), z),
+                        BlockVector3.at(Math.min(x + CLEAR_SLICE_SIZE - 1, max.getX()), max.getY(), Math.min(z + CLEAR_SLICE_SIZE - 1, max.getZ())));
+
+                tasks.add(() -> {
+                    try (EditSession editSession = WorldEdit.getInstance().newEditSession(BukkitAdapter.adapt(arenaWorld))) {
+                        editSession.setBlocks(slice, Objects.requireNonNull(BlockTypes.AIR).getDefaultState());
+                    } catch (WorldEditException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+        }
+
+        return tasks;
+    }
+}
@@ -1,11 +1,95 @@
 package dev.felnull.shortlifeplugin.match.map;
 
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.generator.BiomeProvider;
 import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.generator.WorldInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Random;
 
 /**
- * 試合用チャンクジェネレータ
+ * 試合用チャンクジェネレータ<br/>
+ * 試合用ワールドの地形はスケマティックから生成するため、ブロックを一切生成しない<br/>
+ * バイオームとスポーン地点を固定にして、バイオームの計算とスポーン地点の探索を行わない<br/>
+ * shouldGenerate系はBukkitの既定値(全てfalse)と同じで、明示のために記述しているのみのため、何も設定しないジェネレーターとの処理量の差はバイオームとスポーン地点のみ
  *
  * @author MORIMORI0317
  */
 public class MatchChunkGenerator extends ChunkGenerator {
+
+    /**
+     * ジェネレーターのバージョン<br/>
+     * 生成内容を変更した場合は値を上げて、保存済みのテンプレートワールドを作り直させる
+     */
+    public static final int GENERATOR_VERSION = 1;
+
+    /**
+     * 全てのチャンクで使用するバイオーム
+     */
+    private static final Biome FIXED_BIOME = Biome.PLAINS;
+
+    /**
+     * スポーン地点のY座標
+     */
+    private static final int FIXED_SPAWN_Y = 64;
+
+    /**
+     * 固定バイオームの提供
+     */
+    private static final BiomeProvider FIXED_BIOME_PROVIDER = new BiomeProvider() {
+        @Override
+        public @NotNull Biome getBiome(@NotNull WorldInfo worldInfo, int x, int y, int z) {
+            return FIXED_BIOME;
+        }
+
+        @Override
+        public @NotNull List<Biome> getBiomes(@NotNull WorldInfo worldInfo) {
+            return List.of(FIXED_BIOME);
+        }
+    };
+
+    @Override
+    public @Nullable BiomeProvider getDefaultBiomeProvider(@NotNull WorldInfo worldInfo) {
+        return FIXED_BIOME_PROVIDER;
+    }
+
+    @Override
+    public @Nullable Location getFixedSpawnLocation(@NotNull World world, @NotNull Random random) {
+        return new Location(world, 0, FIXED_SPAWN_Y, 0);
+    }
+
+    @Override
+    public boolean shouldGenerateNoise() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateSurface() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateCaves() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateDecorations() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateMobs() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateStructures() {
+        return false;
+    }
 }
@@ -0,0 +1,140 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.generator.ChunkGenerator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static dev.felnull.shortlifeplugin.match.map.MatchMapHandler.WORLD_NAME_PREFIX;
+
+/**
+ * 試合用チャンクジェネレータのチャンク生成時間の計測<br/>
+ * 何も設定しないジェネレーター(変更前)と、試合用チャンクジェネレータ(変更後)で一時的なワールドを作成して比較する<br/>
+ * JITコンパイルや初回のワールド作成の影響が先に計測する方へ偏らないように、計測前にそれぞれのジェネレーターで計測しない生成を行う<br/>
+ * ワールドの生成を行うため、サーバーTickから呼び出してください。計測中はサーバーTickが停止する
+ *
+ * @author MORIMORI0317
+ */
+public class MatchChunkGeneratorBenchmark {
+
+    /**
+     * 計測するチャンクの開始位置(チャンク座標)<br/>
+     * スポーン地点周辺の読み込み済みチャンクを避ける
+     */
+    private static final int START_CHUNK_POS = 1000;
+
+    /**
+     * 計測前の生成で生成するチャンク数の上限
+     */
+    private static final int WARM_UP_CHUNK_COUNT = 64;
+
+    /**
+     * ワールドフォルダーの削除
+     */
+    @NotNull
+    private final WorldDeletionService worldDeletionService;
+
+    /**
+     * コンストラクタ
+     *
+     * @param worldDeletionService ワールドフォルダーの削除
+     */
+    protected MatchChunkGeneratorBenchmark(@NotNull WorldDeletionService worldDeletionService) {
+        this.worldDeletionService = worldDeletionService;
+    }
+
+    /**
+     * 変更前と変更後のジェネレーターでチャンク生成時間を計測する
+     *
+     * @param chunkCount 計測するチャンク数
+     * @return ジェネレーターごとの計測結果
+     */
+    public List<Result> run(int chunkCount) {
+        ChunkGenerator defaultGenerator = new ChunkGenerator() {
+        };
+        ChunkGenerator matchGenerator = new MatchChunkGenerator();
+        int warmUpChunkCount = Math.min(chunkCount, WARM_UP_CHUNK_COUNT);
+
+        measure("default", defaultGenerator, warmUpChunkCount, true);
+        measure("match", matchGenerator, warmUpChunkCount, true);
+
+        return List.of(
+                measure("default", defaultGenerator, chunkCount, false),
+                measure("match", matchGenerator, chunkCount, false));
+    }
+
+    private Result measure(String name, ChunkGenerator generator, int chunkCount, boolean warmUp) {
+        // ワールドのTick処理中確認
+        if (Bukkit.isTickingWorlds()) {
+            throw new RuntimeException("ワールドのTick処理中です");
+        }
+
+        String worldId = "benchmark_" + UUID.randomUUID();
+        WorldCreator worldCreator = new WorldCreator(WORLD_NAME_PREFIX + worldId, SLUtils.plLoc(worldId));
+        worldCreator.generator(generator);
+        worldCreator.environment(World.Environment.NORMAL);
+
+        // ワールドの作成にはスポーン地点の探索と周辺チャンクの生成が含まれる
+        long createStartTime = System.nanoTime();
+        World world = worldCreator.createWorld();
+        long createNanos = System.nanoTime() - createStartTime;
+
+        if (world == null) {
+            throw new RuntimeException("ワールドの生成に失敗");
+        }
+
+        world.setAutoSave(false);
+        File worldFolder = world.getWorldFolder();
+
+        try {
+            int size = (int) Math.ceil(Math.sqrt(chunkCount));
+            long chunkStartTime = System.nanoTime();
+
+            for (int i = 0; i < chunkCount; i++) {
+                world.getChunkAt(START_CHUNK_POS + i % size, START_CHUNK_POS + i / size, true);
+            }
+
+            long chunkNanos = System.nanoTime() - chunkStartTime;
+
+            if (warmUp) {
+                return new Result(name, createNanos, chunkCount, chunkNanos);
+            }
+
+            SLUtils.getLogger().info(String.format("チャンク生成の計測(%s): ワールド作成 %.1fms, %dチャンク %.1fms, %.3fms/チャンク",
+                    name, createNanos / 1_000_000d, chunkCount, chunkNanos / 1_000_000d, chunkNanos / 1_000_000d / chunkCount));
+
+            return new Result(name, createNanos, chunkCount, chunkNanos);
+        } finally {
+            Bukkit.unloadWorld(world, false);
+            this.worldDeletionService.delete(worldFolder, new ReentrantLock());
+        }
+    }
+
+    /**
+     * 計測結果
+     *
+     * @param name        ジェネレーター名
+     * @param createNanos ワールドの作成時間 (ns)
+     * @param chunkCount  生成したチャンク数
+     * @param chunkNanos  チャンクの生成時間の合計 (ns)
+     * @author MORIMORI0317
+     */
+    public record Result(@NotNull String name, long createNanos, int chunkCount, long chunkNanos) {
+
+        /**
+         * 1チャンクあたりの生成時間を取得
+         *
+         * @return 時間 (ns)
+         */
+        public double getNanosPerChunk() {
+            return (double) this.chunkNanos / this.chunkCount;
+        }
+    }
+}
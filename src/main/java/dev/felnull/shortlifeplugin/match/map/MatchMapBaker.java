@@ -0,0 +1,388 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sk89q.worldedit.math.BlockVector3;
+import dev.felnull.fnjl.util.FNDataUtil;
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.SLConfig;
+import dev.felnull.shortlifeplugin.utils.SLFiles;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 試合用マップを事前に生成して、ワールドのテンプレートとして保存するクラス<br/>
+ * 事前生成済みのマップは、読み込み時にワールドフォルダーをコピーするだけで利用できる<br/>
+ * スケマティックファイルの更新日時とサイズ、オフセットが一致する場合のみ利用する
+ *
+ * @author MORIMORI0317
+ */
+public class MatchMapBaker {
+
+    /**
+     * GSON
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 保存Jsonのバージョン
+     */
+    private static final int SAVE_JSON_VERSION = 0;
+
+    /**
+     * 事前生成用インスタンスIDの接頭辞
+     */
+    private static final String BAKE_INSTANCE_ID_PREFIX = "bake_";
+
+    /**
+     * 事前生成情報ファイル名
+     */
+    private static final String META_FILE_NAME = "bake.json";
+
+    /**
+     * 事前生成済みワールドのフォルダー名
+     */
+    private static final String WORLD_FOLDER_NAME = "world";
+
+    /**
+     * 保存途中のフォルダーの接尾辞
+     */
+    private static final String STAGING_FOLDER_SUFFIX = ".baking";
+
+    /**
+     * 置き換えられた古いフォルダーの接尾辞
+     */
+    private static final String DISCARD_FOLDER_SUFFIX = ".discard";
+
+    /**
+     * マップIDと事前生成済みマップのマップ
+     */
+    private final Map<String, BakedMap> bakedMaps = new ConcurrentHashMap<>();
+
+    /**
+     * 事前生成済みマップのフォルダー操作用ロック<br/>
+     * コピー中に置き換えられないように、コピーは読み込みロック、置き換えは書き込みロックで行う
+     */
+    private final ReadWriteLock bakedFolderLock = new ReentrantReadWriteLock();
+
+    /**
+     * Tickに同期して処理を行うExecutor
+     */
+    private final Executor tickExecutor = Bukkit.getScheduler().getMainThreadExecutor(SLUtils.getSLPlugin());
+
+    /**
+     * マップのインスタンスのローダー
+     */
+    @NotNull
+    private final MatchMapInstanceLoader mapInstanceLoader;
+
+    /**
+     * 実行中の事前生成
+     */
+    @NotNull
+    private CompletableFuture<Integer> bakeTask = CompletableFuture.completedFuture(0);
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapInstanceLoader マップのインスタンスのローダー
+     */
+    protected MatchMapBaker(@NotNull MatchMapInstanceLoader mapInstanceLoader) {
+        this.mapInstanceLoader = mapInstanceLoader;
+    }
+
+    /**
+     * 初期化処理<br/>
+     * 保存済みの事前生成情報を読み込み、保存や置き換えの途中で終了したフォルダーを削除する
+     */
+    public void init() {
+        this.bakedMaps.clear();
+
+        File[] folders = SLFiles.bakedMapFolder().listFiles(File::isDirectory);
+        if (folders == null) {
+            return;
+        }
+
+        for (File folder : folders) {
+            if (folder.getName().endsWith(STAGING_FOLDER_SUFFIX) || folder.getName().endsWith(DISCARD_FOLDER_SUFFIX)) {
+                this.mapInstanceLoader.getWorldDeletionService().delete(folder);
+                continue;
+            }
+
+            try {
+                BakedMap bakedMap = loadMeta(folder);
+
+                // 生成処理やサーバーのバージョンが異なる場合は、事前生成し直すまで利用しない
+                if (bakedMap == null) {
+                    SLUtils.getLogger().info(String.format("事前生成済みマップ(%s)は古いため利用しません", folder.getName()));
+                    continue;
+                }
+
+                this.bakedMaps.put(bakedMap.mapId(), bakedMap);
+            } catch (IOException | RuntimeException e) {
+                SLUtils.reportError(e, MsgHandler.getFormatted("system-baked-map-load-failed", folder.getName()));
+            }
+        }
+
+        SLUtils.getLogger().info(String.format("%d個の事前生成済みマップを読み込み", this.bakedMaps.size()));
+    }
+
+    /**
+     * 利用可能な事前生成済みマップを取得
+     *
+     * @param matchMap 試合用マップ
+     * @return オプショナルな事前生成済みマップ
+     */
+    public Optional<BakedMap> getBakedMap(@NotNull MatchMap matchMap) {
+        if (!SLConfig.isMapBakeEnabled()) {
+            return Optional.empty();
+        }
+
+        BakedMap bakedMap = this.bakedMaps.get(matchMap.id());
+
+        if (bakedMap == null || !bakedMap.schematic().equals(matchMap.schematic()) || !bakedMap.offset().equals(matchMap.offset())) {
+            return Optional.empty();
+        }
+
+        // スケマティックが更新されている場合は利用しない
+        File schemFile = MatchMapInstanceLoader.getSchematicFile(matchMap);
+        if (schemFile.lastModified() != bakedMap.schemLastModified() || schemFile.length() != bakedMap.schemSize()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(bakedMap);
+    }
+
+    /**
+     * 事前生成中かどうか<br/>
+     * Tick同期で呼び出してください。
+     *
+     * @return 事前生成中であればtrue
+     */
+    public boolean isBaking() {
+        return !this.bakeTask.isDone();
+    }
+
+    /**
+     * 試合用マップを順番に事前生成する<br/>
+     * Tick同期で呼び出してください。
+     *
+     * @param matchMaps 試合用マップ
+     * @param force     利用可能な事前生成済みマップが存在する場合も生成し直すかどうか
+     * @return 事前生成に成功したマップ数のCompletableFuture
+     */
+    public CompletableFuture<Integer> bake(@NotNull Collection<MatchMap> matchMaps, boolean force) {
+        if (isBaking()) {
+            throw new IllegalStateException("既に事前生成中です");
+        }
+
+        AtomicInteger bakedCount = new AtomicInteger();
+        CompletableFuture<Void> cf = CompletableFuture.completedFuture(null);
+
+        // 同時に複数のワールドを生成しないように、一つずつ事前生成する
+        for (MatchMap matchMap : matchMaps) {
+            if (!force && getBakedMap(matchMap).isPresent()) {
+                continue;
+            }
+
+            cf = cf.thenComposeAsync(unused -> bakeMap(matchMap)
+                    .handle((result, throwable) -> {
+                        if (throwable != null) {
+                            SLUtils.reportError(throwable, MsgHandler.getFormatted("system-map-bake-failed", matchMap.id()));
+                        } else {
+                            bakedCount.incrementAndGet();
+                        }
+                        return null;
+                    }), this.tickExecutor);
+        }
+
+        this.bakeTask = cf.thenApply(unused -> bakedCount.get());
+        return this.bakeTask;
+    }
+
+    /**
+     * 事前生成済みのワールドフォルダーをコピー
+     *
+     * @param bakedMap    事前生成済みマップ
+     * @param worldFolder コピー先のワールドフォルダー
+     * @throws IOException コピーに失敗
+     */
+    protected void copyBakedWorld(@NotNull BakedMap bakedMap, @NotNull File worldFolder) throws IOException {
+        this.bakedFolderLock.readLock().lock();
+        try {
+            if (this.bakedMaps.get(bakedMap.mapId()) != bakedMap) {
+                throw new IOException("事前生成済みマップが更新されました");
+            }
+
+            this.mapInstanceLoader.getWorldFolderCloner().clone(bakedMap.worldFolder(), worldFolder);
+        } finally {
+            this.bakedFolderLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 試合用マップを事前生成する
+     *
+     * @param matchMap 試合用マップ
+     * @return 事前生成のCompletableFuture
+     */
+    private CompletableFuture<Void> bakeMap(@NotNull MatchMap matchMap) {
+        long startTime = System.currentTimeMillis();
+
+        // 生成中にスケマティックが更新された場合に再度生成されるように、生成前の状態を記録する
+        File schemFile = MatchMapInstanceLoader.getSchematicFile(matchMap);
+        long schemLastModified = schemFile.lastModified();
+        long schemSize = schemFile.length();
+
+        MatchMapInstance instance = new MatchMapInstance(BAKE_INSTANCE_ID_PREFIX + UUID.randomUUID(), matchMap,
+                this.mapInstanceLoader.getWorldDeletionService());
+
+        return this.mapInstanceLoader.generate(instance).thenApplyAsync(mapWorld -> {
+            /* Tick同期でワールドを保存してアンロード */
+
+            World world = mapWorld.getWorld();
+            File worldFolder = world.getWorldFolder();
+
+            if (!Bukkit.unloadWorld(world, true)) {
+                throw new RuntimeException("ワールドのアンロードに失敗");
+            }
+            instance.setStrictWorld(null);
+
+            return Pair.of(worldFolder, mapWorld.getMarkerSet());
+        }, this.tickExecutor).thenAcceptAsync(worldFolderMarkerSetPair -> {
+            /* 非同期でワールドフォルダーを事前生成済みマップフォルダーへ移動 */
+
+            try {
+                store(matchMap, schemLastModified, schemSize, worldFolderMarkerSetPair.getLeft(), worldFolderMarkerSetPair.getRight());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            SLUtils.getLogger().info(String.format("試合用マップ(%s)の事前生成完了: %dms", matchMap.id(), System.currentTimeMillis() - startTime));
+        }, this.mapInstanceLoader.getIoExecutor()).whenCompleteAsync((unused, throwable) -> {
+            /* Tick同期で失敗時にワールドを破棄 */
+
+            if (throwable != null) {
+                instance.dispose();
+            }
+        }, this.tickExecutor);
+    }
+
+    private void store(@NotNull MatchMap matchMap, long schemLastModified, long schemSize, @NotNull File worldFolder, @NotNull MapMarkerSet markerSet) throws IOException {
+        FNDataUtil.wishMkdir(SLFiles.bakedMapFolder());
+
+        File stagingFolder = new File(SLFiles.bakedMapFolder(), matchMap.id() + STAGING_FOLDER_SUFFIX);
+        this.mapInstanceLoader.getWorldDeletionService().deleteNow(stagingFolder);
+        FNDataUtil.wishMkdir(stagingFolder);
+
+        // uid.datを削除
+        File uidFile = new File(worldFolder, "uid.dat");
+        if (uidFile.exists() && !uidFile.delete()) {
+            throw new IOException("uid.datの削除に失敗");
+        }
+
+        this.mapInstanceLoader.moveWorldFolder(worldFolder, new File(stagingFolder, WORLD_FOLDER_NAME));
+
+        JsonObject jo = new JsonObject();
+        jo.addProperty("_version", SAVE_JSON_VERSION);
+        jo.addProperty("map", matchMap.id());
+        jo.addProperty("schematic", matchMap.schematic());
+        jo.add("fingerprint", MatchWorldTemplate.createFingerprint());
+
+        JsonArray offsetJson = new JsonArray();
+        offsetJson.add(matchMap.offset().getX());
+        offsetJson.add(matchMap.offset().getY());
+        offsetJson.add(matchMap.offset().getZ());
+        jo.add("offset", offsetJson);
+
+        jo.addProperty("schematic_last_modified", schemLastModified);
+        jo.addProperty("schematic_size", schemSize);
+        jo.add("markers", MapMarkerIndex.markerSetToJson(markerSet));
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(stagingFolder, META_FILE_NAME)), StandardCharsets.UTF_8))) {
+            GSON.toJson(jo, writer);
+        }
+
+        // 保存が完了してから置き換える
+        File bakedFolder = new File(SLFiles.bakedMapFolder(), matchMap.id());
+        File discardFolder = new File(SLFiles.bakedMapFolder(), matchMap.id() + DISCARD_FOLDER_SUFFIX);
+        this.mapInstanceLoader.getWorldDeletionService().deleteNow(discardFolder);
+
+        this.bakedFolderLock.writeLock().lock();
+        try {
+            this.bakedMaps.remove(matchMap.id());
+
+            // ロック中に削除を待たないように、古いフォルダーは同じフォルダー内で名前を変更し、置き換えてから削除する
+            if (bakedFolder.exists()) {
+                this.mapInstanceLoader.moveWorldFolder(bakedFolder, discardFolder);
+            }
+            this.mapInstanceLoader.moveWorldFolder(stagingFolder, bakedFolder);
+
+            this.bakedMaps.put(matchMap.id(), new BakedMap(matchMap.id(), matchMap.schematic(), matchMap.offset(), schemLastModified, schemSize,
+                    new File(bakedFolder, WORLD_FOLDER_NAME), markerSet));
+        } finally {
+            this.bakedFolderLock.writeLock().unlock();
+        }
+
+        this.mapInstanceLoader.getWorldDeletionService().deleteNow(discardFolder);
+    }
+
+    @Nullable
+    private BakedMap loadMeta(@NotNull File bakedFolder) throws IOException {
+        File worldFolder = new File(bakedFolder, WORLD_FOLDER_NAME);
+        if (!worldFolder.isDirectory()) {
+            throw new IOException("ワールドフォルダーが存在しません");
+        }
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(bakedFolder, META_FILE_NAME)), StandardCharsets.UTF_8))) {
+            JsonObject jo = GSON.fromJson(reader, JsonObject.class);
+
+            int version = jo.get("_version").getAsInt();
+            if (version != SAVE_JSON_VERSION) {
+                throw new IOException(MsgHandler.get("system-unsupported-file-version") + version);
+            }
+
+            if (!MatchWorldTemplate.createFingerprint().equals(jo.getAsJsonObject("fingerprint"))) {
+                return null;
+            }
+
+            JsonArray offsetJson = jo.getAsJsonArray("offset");
+            BlockVector3 offset = BlockVector3.at(offsetJson.get(0).getAsInt(), offsetJson.get(1).getAsInt(), offsetJson.get(2).getAsInt());
+
+            return new BakedMap(jo.get("map").getAsString(), jo.get("schematic").getAsString(), offset,
+                    jo.get("schematic_last_modified").getAsLong(), jo.get("schematic_size").getAsLong(), worldFolder,
+                    MapMarkerIndex.markerSetFromJson(jo.getAsJsonArray("markers")));
+        }
+    }
+
+    /**
+     * 事前生成済みマップ
+     *
+     * @param mapId             試合用マップID
+     * @param schematic         生成時のスケマティックのID
+     * @param offset            生成時のスケマティック生成オフセット
+     * @param schemLastModified 生成時のスケマティックファイルの更新日時
+     * @param schemSize         生成時のスケマティックファイルのサイズ
+     * @param worldFolder       事前生成済みのワールドフォルダー
+     * @param markerSet         マーカーの集まり
+     * @author MORIMORI0317
+     */
+    public record BakedMap(@NotNull String mapId, @NotNull String schematic, @NotNull BlockVector3 offset, long schemLastModified, long schemSize,
+                           @NotNull File worldFolder, @NotNull MapMarkerSet markerSet) {
+    }
+}
@@ -0,0 +1,189 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import dev.felnull.shortlifeplugin.match.MatchMode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 読み込まれた試合用マップの一覧<br/>
+ * マップの読み込み時に一度だけ作成し、試合モードごとの利用可能なマップを事前に分類しておく<br/>
+ * 変更不可のため、マップの再読み込み中でも取得した一覧は一貫している
+ *
+ * @author MORIMORI0317
+ */
+public final class MatchMapCatalog {
+
+    /**
+     * マップが存在しない一覧
+     */
+    public static final MatchMapCatalog EMPTY = new MatchMapCatalog(0, ImmutableMap.of(), ImmutableSetMultimap.of());
+
+    /**
+     * 作成した一覧のバージョン
+     */
+    private static final AtomicLong LAST_VERSION = new AtomicLong();
+
+    /**
+     * 一覧のバージョン<br/>
+     * 作成されるたびに増加する
+     */
+    private final long version;
+
+    /**
+     * IDとマップ(ID順)
+     */
+    @NotNull
+    private final ImmutableMap<String, MatchMap> maps;
+
+    /**
+     * 試合モードと利用可能なマップ(ID順)
+     */
+    @NotNull
+    private final ImmutableSetMultimap<MatchMode, MatchMap> availableMaps;
+
+    /**
+     * コンストラクタ
+     *
+     * @param version       一覧のバージョン
+     * @param maps          IDとマップ
+     * @param availableMaps 試合モードと利用可能なマップ
+     */
+    private MatchMapCatalog(long version, @NotNull ImmutableMap<String, MatchMap> maps, @NotNull ImmutableSetMultimap<MatchMode, MatchMap> availableMaps) {
+        this.version = version;
+        this.maps = maps;
+        this.availableMaps = availableMaps;
+    }
+
+    /**
+     * マップから一覧を作成する
+     *
+     * @param maps IDとマップ
+     * @return 一覧
+     */
+    public static MatchMapCatalog of(@NotNull Map<String, MatchMap> maps) {
+        List<MatchMap> sortedMaps = maps.values().stream()
+                .sorted(Comparator.comparing(MatchMap::id))
+                .toList();
+
+        ImmutableMap.Builder<String, MatchMap> mapsBuilder = ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<MatchMode, MatchMap> availableMapsBuilder = ImmutableSetMultimap.builder();
+
+        for (MatchMap matchMap : sortedMaps) {
+            mapsBuilder.put(matchMap.id(), matchMap);
+            matchMap.availableMatchModes().forEach(matchMode -> availableMapsBuilder.put(matchMode, matchMap));
+        }
+
+        return new MatchMapCatalog(LAST_VERSION.incrementAndGet(), mapsBuilder.build(), availableMapsBuilder.build());
+    }
+
+    /**
+     * 一覧のバージョンを取得
+     *
+     * @return バージョン
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * 全てのマップを取得
+     *
+     * @return IDとマップ
+     */
+    @Unmodifiable
+    @NotNull
+    public Map<String, MatchMap> getMaps() {
+        return this.maps;
+    }
+
+    /**
+     * マップを取得
+     *
+     * @param mapId マップID
+     * @return 試合用マップ
+     */
+    public Optional<MatchMap> getMap(@NotNull String mapId) {
+        return Optional.ofNullable(this.maps.get(mapId));
+    }
+
+    /**
+     * 指定した試合モードで利用可能なマップを取得
+     *
+     * @param matchMode 試合モード
+     * @return 利用可能なマップのリスト
+     */
+    @Unmodifiable
+    @NotNull
+    public List<MatchMap> getAvailableMaps(@NotNull MatchMode matchMode) {
+        return this.availableMaps.get(matchMode).asList();
+    }
+
+    /**
+     * 指定した試合モードで利用可能なマップが存在するか確認
+     *
+     * @param matchMode 試合モード
+     * @return 存在すればtrue
+     */
+    public boolean isAvailableMapExists(@NotNull MatchMode matchMode) {
+        return this.availableMaps.containsKey(matchMode);
+    }
+
+    /**
+     * 指定したIDのマップが試合モードで利用可能であれば、この一覧のマップを取得<br/>
+     * 再読み込みでマップの内容が変わっても、以前の一覧から取得したマップと同じIDであれば取得できる
+     *
+     * @param matchMode 試合モード
+     * @param mapId     マップID
+     * @return 利用可能なマップ、利用できない場合は空
+     */
+    public Optional<MatchMap> getAvailableMap(@NotNull MatchMode matchMode, @NotNull String mapId) {
+        return getMap(mapId).filter(matchMap -> this.availableMaps.containsEntry(matchMode, matchMap));
+    }
+
+    /**
+     * 指定した試合モードで利用可能なマップからランダムに1つ選ぶ
+     *
+     * @param matchMode 試合モード
+     * @param random    ランダム
+     * @return 選ばれたマップ、利用可能なマップが存在しない場合は空
+     */
+    public Optional<MatchMap> getRandomMap(@NotNull MatchMode matchMode, @NotNull Random random) {
+        ImmutableList<MatchMap> available = this.availableMaps.get(matchMode).asList();
+
+        if (available.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(available.get(random.nextInt(available.size())));
+    }
+
+    /**
+     * 指定した試合モードで利用可能なマップから、重複しないようにランダムに選ぶ<br/>
+     * 利用可能なマップが指定数以下の場合は全てのマップを返す
+     *
+     * @param matchMode 試合モード
+     * @param count     選ぶ数
+     * @param random    ランダム
+     * @return 選ばれたマップのリスト
+     */
+    @Unmodifiable
+    @NotNull
+    public List<MatchMap> getRandomMaps(@NotNull MatchMode matchMode, int count, @NotNull Random random) {
+        ImmutableSet<MatchMap> available = this.availableMaps.get(matchMode);
+
+        if (available.size() <= count) {
+            return available.asList();
+        }
+
+        List<MatchMap> shuffled = new ArrayList<>(available);
+        Collections.shuffle(shuffled, random);
+        return ImmutableList.copyOf(shuffled.subList(0, count));
+    }
+}
@@ -7,7 +7,6 @@ import dev.felnull.fnjl.util.FNStringUtil;
 import dev.felnull.shortlifeplugin.MsgHandler;
 import dev.felnull.shortlifeplugin.utils.SLFiles;
 import dev.felnull.shortlifeplugin.utils.SLUtils;
-import org.codehaus.plexus.util.FileUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
@@ -15,10 +14,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
 
-import static dev.felnull.shortlifeplugin.match.map.MatchMapHandler.WORLD_NAME_PREFIX;
-
 /**
  * 試合用マップフォルダ管理
  *
@@ -45,12 +43,43 @@ public class MatchMapFolderHandler {
         try (Stream<Path> paths = Files.walk(mapFolder.toPath())) {
             Stream<File> mapFiles = getMapFiles(paths);
 
-            mapFiles.forEach(file -> loadMapFromJson(mapFolder, file, maps));
+            mapFiles.forEach(file -> loadMapFile(file).ifPresent(matchMap -> maps.put(matchMap.id(), matchMap)));
         }
 
         return maps;
     }
 
+    /**
+     * マップファイルを1つだけ読み込む<br/>
+     * マップの再読み込みで、変更されたファイルのみを読み込むために使用する
+     *
+     * @param file マップファイル
+     * @return 読み込まれたマップ、失敗した場合は空
+     */
+    public Optional<MatchMap> loadMapFile(@NotNull File file) {
+        return loadMapFromJson(SLFiles.mapFolder(), file);
+    }
+
+    /**
+     * マップファイルのIDを取得
+     *
+     * @param file マップファイル
+     * @return マップID
+     */
+    public String getMapId(@NotNull File file) {
+        return SLUtils.getIdFromPath(file, SLFiles.mapFolder());
+    }
+
+    /**
+     * マップファイルかどうか
+     *
+     * @param file ファイル
+     * @return マップファイルであればtrue
+     */
+    public static boolean isMapFile(@NotNull File file) {
+        return "json".equalsIgnoreCase(FNStringUtil.getExtension(file.getName()));
+    }
+
     /**
      * パスの内マップファイルであるものを全て取得
      *
@@ -61,7 +90,7 @@ public class MatchMapFolderHandler {
     private static Stream<File> getMapFiles(Stream<Path> paths) {
         return paths.map(Path::toFile) // ファイルへ変換
                 .filter(it -> !it.isDirectory()) // ディレクトリを除外
-                .filter(it -> "json".equalsIgnoreCase(FNStringUtil.getExtension(it.getName())));
+                .filter(MatchMapFolderHandler::isMapFile);
     }
 
     /**
@@ -69,32 +98,20 @@ public class MatchMapFolderHandler {
      *
      * @param mapFolder マップフォルダ
      * @param file      マップファイル
-     * @param maps      読み込まんだマップを格納するjavaのマップ
+     * @return 読み込まれたマップ、失敗した場合は空
      */
-    private void loadMapFromJson(File mapFolder, File file, Map<String, MatchMap> maps) {
+    private Optional<MatchMap> loadMapFromJson(File mapFolder, File file) {
         String id = SLUtils.getIdFromPath(file, mapFolder);
 
         try (InputStream stream = new FileInputStream(file); Reader reader = new BufferedReader(new InputStreamReader(stream))) {
             JsonObject jo = GSON.fromJson(reader, JsonObject.class);
             MatchMap matchMap = MatchMap.of(id, jo);
-            maps.put(id, matchMap);
 
             SLUtils.getLogger().info(MsgHandler.getFormatted("system-map-loaded", id));
+            return Optional.of(matchMap);
         } catch (IOException | RuntimeException e) {
             SLUtils.reportError(e, MsgHandler.getFormatted("system-map-load-failed-detailed", id));
-        }
-    }
-
-    /**
-     * 試合用ワールドフォルダを削除
-     */
-    public void clearMatchWorldFolder() {
-        File matchWorldFolder = new File("./" + WORLD_NAME_PREFIX);
-
-        try {
-            FileUtils.deleteDirectory(matchWorldFolder);
-        } catch (IOException e) {
-            SLUtils.reportError(e, MsgHandler.get("system-map-folder-deletion-failed"));
+            return Optional.empty();
         }
     }
 }
@@ -1,13 +1,14 @@
 package dev.felnull.shortlifeplugin.match.map;
 
-import com.google.common.collect.ImmutableMap;
 import dev.felnull.fnjl.util.FNDataUtil;
 import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.SLConfig;
 import dev.felnull.shortlifeplugin.ShortLifePlugin;
 import dev.felnull.shortlifeplugin.match.Match;
 import dev.felnull.shortlifeplugin.match.MatchMode;
 import dev.felnull.shortlifeplugin.utils.SLFiles;
 import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.bukkit.World;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
 
@@ -26,15 +27,27 @@ public class MatchMapHandler {
      */
     public static final String WORLD_NAME_PREFIX = "world_match/";
 
+    /**
+     * 投票中に先行して読み込むマップインスタンスのIDの接頭辞
+     */
+    private static final String PRELOAD_INSTANCE_ID_PREFIX = "preload_";
+
+    /**
+     * 投票中に先行して読み込む際の、試合の優先度に掛ける倍率<br/>
+     * 確定したマップの読み込みより後回しにする
+     */
+    private static final double PRELOAD_PRIORITY_SCALE = 0.5d;
+
     /**
      * ランダム
      */
     private static final Random RANDOM = new Random();
 
     /**
-     * 読み込まれた全てのマップ
+     * 読み込まれた全てのマップの一覧<br/>
+     * 再読み込み時は変更せずに一括で差し替えるため、取得した一覧は常に一貫している
      */
-    private Map<String, MatchMap> maps = new HashMap<>();
+    private volatile MatchMapCatalog catalog = MatchMapCatalog.EMPTY;
 
     /**
      * マップのフォルダ管理クラス
@@ -46,34 +59,74 @@ public class MatchMapHandler {
      */
     private final MatchMapInstanceLoader mapInstanceLoader = new MatchMapInstanceLoader();
 
+    /**
+     * マップの読み込みのスケジューラー
+     */
+    private final MatchMapLoadScheduler loadScheduler = new MatchMapLoadScheduler(this.mapInstanceLoader);
+
+    /**
+     * 読み込み済みマップワールドのプール
+     */
+    private final MatchMapWorldPool mapWorldPool = new MatchMapWorldPool(this, this.mapInstanceLoader);
+
+    /**
+     * マップの再読み込み
+     */
+    private final MatchMapReloader mapReloader = new MatchMapReloader(this, this.mapFolderHandler, this.mapInstanceLoader);
+
     /**
      * 初期化処理
      *
      * @param plugin プラグイン
      */
     public void init(ShortLifePlugin plugin) {
-        mapFolderHandler.clearMatchWorldFolder();
+        this.mapInstanceLoader.getWorldDeletionService().sweep();
 
         FNDataUtil.wishMkdir(SLFiles.schematicFolder());
 
         try {
-            maps = mapFolderHandler.loadMap();
+            this.catalog = MatchMapCatalog.of(mapFolderHandler.loadMap());
         } catch (IOException ex) {
             SLUtils.reportError(ex, MsgHandler.get("system-all-map-load-failed"));
         }
 
         plugin.getLogger().info(MsgHandler.get("system-all-map-loaded"));
+
+        // 最初の試合で生成しないように、起動時にテンプレートワールドを用意しておく
+        this.mapInstanceLoader.getWorldTemplate().get().whenComplete((templateWorldFolder, throwable) -> {
+            if (throwable != null) {
+                SLUtils.reportError(throwable, MsgHandler.get("system-world-template-failed"));
+            }
+        });
+
+        // 変換済みファイルが無い、もしくは古いスケマティックを事前に変換しておく
+        this.mapInstanceLoader.compileSchematics(this.catalog.getMaps().values());
+
+        MatchMapBaker mapBaker = this.mapInstanceLoader.getMapBaker();
+        mapBaker.init();
+
+        if (SLConfig.isMapBakeEnabled() && SLConfig.isMapAutoBake()) {
+            mapBaker.bake(this.catalog.getMaps().values(), false);
+        }
+
+        if (SLConfig.isMapReloadWatch()) {
+            this.mapReloader.start();
+        }
     }
 
     /**
      * Tick処理
      */
     public void tick() {
+        this.loadScheduler.tick();
         this.mapInstanceLoader.tick();
+        this.mapWorldPool.tick();
     }
 
     /**
-     * マップインスタンスを作成
+     * マップインスタンスを作成<br/>
+     * プールに準備済みのインスタンスがあれば、そちらを返す<br/>
+     * 読み込みは試合の優先度に従って、スケジューラーから開始される
      *
      * @param match         試合
      * @param mapInstanceId マップインスタンスID
@@ -81,17 +134,176 @@ public class MatchMapHandler {
      * @return マップインスタンス
      */
     public MatchMapInstance createMapInstance(@NotNull Match match, @NotNull String mapInstanceId, @NotNull MatchMap matchMap) {
-        MatchMapInstance matchMapInstance = new MatchMapInstance(mapInstanceId, matchMap);
-        matchMapInstance.setMapWorld(mapInstanceLoader.load(match.getMatchMode(), matchMapInstance));
+        this.mapWorldPool.recordDemand(match.getMatchMode());
+
+        Optional<MatchMapInstance> pooledInstance = this.mapWorldPool.take(match.getMatchMode(), matchMap);
+        if (pooledInstance.isPresent()) {
+            SLUtils.getLogger().info(String.format("試合(%s)にプール済みのマップインスタンス(%s)を割り当て", match.getId(), pooledInstance.get().getId()));
+
+            // 読み込み中の場合は、試合の優先度で読み込みを続ける
+            pooledInstance.get().setLoadPriority(match::getMapLoadPriority);
+            return pooledInstance.get();
+        }
+
+        MatchMapInstance matchMapInstance = newMapInstance(mapInstanceId, matchMap);
+        matchMapInstance.setLoadPriority(match::getMapLoadPriority);
+        this.loadScheduler.submit(match.getMatchMode(), matchMapInstance);
+        return matchMapInstance;
+    }
+
+    /**
+     * 投票中の試合のために、マップインスタンスを先行して作成<br/>
+     * 確定した試合の読み込みより低い優先度で読み込まれる
+     *
+     * @param match    投票中の試合
+     * @param matchMap 試合用マップ
+     * @return マップインスタンス
+     */
+    public MatchMapInstance createPreloadMapInstance(@NotNull Match match, @NotNull MatchMap matchMap) {
+        MatchMapInstance matchMapInstance = this.mapWorldPool.take(match.getMatchMode(), matchMap).orElseGet(() -> {
+            String instanceId = PRELOAD_INSTANCE_ID_PREFIX + UUID.randomUUID();
+            MatchMapInstance preloadInstance = newMapInstance(instanceId, matchMap);
+            this.loadScheduler.submit(match.getMatchMode(), preloadInstance);
+            return preloadInstance;
+        });
+
+        matchMapInstance.setLoadPriority(() -> match.getMapLoadPriority() * PRELOAD_PRIORITY_SCALE);
+        return matchMapInstance;
+    }
+
+    /**
+     * 読み込み前のマップインスタンスを作成<br/>
+     * アリーナが有効な場合は、共有するアリーナワールドの区画を割り当てる
+     *
+     * @param mapInstanceId マップインスタンスID
+     * @param matchMap      試合用マップ
+     * @return マップインスタンス(ワールドは空)
+     */
+    protected MatchMapInstance newMapInstance(@NotNull String mapInstanceId, @NotNull MatchMap matchMap) {
+        MatchArenaSlot arenaSlot = SLConfig.isArenaEnabled() ? this.mapInstanceLoader.getArenaWorld().allocate() : null;
+        return new MatchMapInstance(mapInstanceId, matchMap, this.mapInstanceLoader.getWorldDeletionService(), arenaSlot);
+    }
+
+    /**
+     * 先行して作成したマップインスタンスを試合に割り当てる
+     *
+     * @param match            試合
+     * @param matchMapInstance 先行して作成したマップインスタンス
+     * @return 割り当てたマップインスタンス
+     */
+    public MatchMapInstance adoptMapInstance(@NotNull Match match, @NotNull MatchMapInstance matchMapInstance) {
+        this.mapWorldPool.recordDemand(match.getMatchMode());
+        matchMapInstance.setLoadPriority(match::getMapLoadPriority);
+
+        SLUtils.getLogger().info(String.format("試合(%s)に先行読み込みしたマップインスタンス(%s)を割り当て", match.getId(), matchMapInstance.getId()));
         return matchMapInstance;
     }
 
+    /**
+     * 試合が終了したマップインスタンスを元に戻して、同じマップの次の試合で使用できるようにプールへ戻す<br/>
+     * 無効な場合や準備が終わっていない場合は破棄する
+     *
+     * @param matchMapInstance マップインスタンス
+     * @param matchMode        読み込み時に検証した試合モード
+     */
+    public void resetMapInstance(@NotNull MatchMapInstance matchMapInstance, @NotNull MatchMode matchMode) {
+        if (!SLConfig.isMapResetEnabled() || !matchMapInstance.isReady()) {
+            matchMapInstance.dispose();
+            return;
+        }
+
+        matchMapInstance.reset();
+        this.mapWorldPool.offer(matchMapInstance, matchMode);
+
+        SLUtils.getLogger().info(String.format("マップインスタンス(%s)を元に戻してプールへ戻しました", matchMapInstance.getId()));
+    }
+
+    /**
+     * 使用されなかったマップインスタンスを、プールへ戻すか破棄する
+     *
+     * @param matchMapInstance マップインスタンス
+     * @param matchMode        読み込み時に検証した試合モード
+     */
+    public void recycleMapInstance(@NotNull MatchMapInstance matchMapInstance, @NotNull MatchMode matchMode) {
+        this.mapWorldPool.offer(matchMapInstance, matchMode);
+    }
+
+    /**
+     * 指定したワールドがアリーナワールドかどうか
+     *
+     * @param world ワールド
+     * @return アリーナワールドの場合はtrue
+     */
+    public boolean isArenaWorld(@NotNull World world) {
+        return this.mapInstanceLoader.getArenaWorld().isArenaWorld(world);
+    }
+
+    /**
+     * マップの事前生成を取得
+     *
+     * @return マップの事前生成
+     */
+    public MatchMapBaker getMapBaker() {
+        return this.mapInstanceLoader.getMapBaker();
+    }
+
+    /**
+     * マップの読み込みに使用するExecutorを取得
+     *
+     * @return IO用とCPU用のExecutor
+     */
+    public MapLoadExecutors getLoadExecutors() {
+        return this.mapInstanceLoader.getExecutors();
+    }
+
+    /**
+     * マップの読み込みのスケジューラーを取得
+     *
+     * @return スケジューラー
+     */
+    public MatchMapLoadScheduler getLoadScheduler() {
+        return this.loadScheduler;
+    }
+
+    /**
+     * 試合用チャンクジェネレータのチャンク生成時間を計測する<br/>
+     * 一時的なワールドを作成するため、サーバーTickから呼び出してください。
+     *
+     * @param chunkCount 計測するチャンク数
+     * @return ジェネレーターごとの計測結果
+     */
+    public List<MatchChunkGeneratorBenchmark.Result> benchmarkChunkGenerator(int chunkCount) {
+        return new MatchChunkGeneratorBenchmark(this.mapInstanceLoader.getWorldDeletionService()).run(chunkCount);
+    }
+
+    /**
+     * 試合用マップごとの読み込み時間の統計を取得
+     *
+     * @return 読み込み時間の統計
+     */
+    public MapLoadMetrics getLoadMetrics() {
+        return this.mapInstanceLoader.getLoadMetrics();
+    }
+
+    /**
+     * プール内の指定したマップのインスタンスを破棄する
+     *
+     * @param mapIds マップID
+     * @return 破棄したインスタンス数
+     */
+    protected int evictPooledMaps(@NotNull Set<String> mapIds) {
+        return this.mapWorldPool.evict(mapIds);
+    }
+
     /**
      * 破棄処理
      */
     public void dispose() {
+        mapReloader.stop();
+        mapWorldPool.dispose();
+        mapInstanceLoader.getArenaWorld().dispose();
         mapInstanceLoader.stopAsyncExecutor();
-        mapFolderHandler.clearMatchWorldFolder();
+        mapInstanceLoader.getWorldDeletionService().shutdown();
     }
 
     /**
@@ -101,13 +313,45 @@ public class MatchMapHandler {
      * @return 試合用マップ
      */
     public Optional<MatchMap> getMap(@NotNull String mapId) {
-        return Optional.ofNullable(this.maps.get(mapId));
+        return this.catalog.getMap(mapId);
     }
 
     @Unmodifiable
     @NotNull
     public Map<String, MatchMap> getAllMap() {
-        return ImmutableMap.copyOf(this.maps);
+        return this.catalog.getMaps();
+    }
+
+    /**
+     * 読み込まれた全てのマップの一覧を取得
+     *
+     * @return マップの一覧
+     */
+    @NotNull
+    public MatchMapCatalog getCatalog() {
+        return this.catalog;
+    }
+
+    /**
+     * 読み込まれた全てのマップを差し替える
+     *
+     * @param newMaps 新しい全てのマップ
+     */
+    protected void replaceMaps(@NotNull Map<String, MatchMap> newMaps) {
+        this.catalog = MatchMapCatalog.of(newMaps);
+    }
+
+    /**
+     * 変更されたマップのみを反映したマップに差し替える
+     *
+     * @param updatedMaps   追加もしくは変更されたマップ
+     * @param removedMapIds 削除されたマップのID
+     */
+    protected void updateMaps(@NotNull Map<String, MatchMap> updatedMaps, @NotNull Set<String> removedMapIds) {
+        Map<String, MatchMap> newMaps = new HashMap<>(this.catalog.getMaps());
+        newMaps.keySet().removeAll(removedMapIds);
+        newMaps.putAll(updatedMaps);
+        this.catalog = MatchMapCatalog.of(newMaps);
     }
 
     /**
@@ -117,8 +361,7 @@ public class MatchMapHandler {
      * @return 利用可能なマップが存在すればtrue、しなければfalse
      */
     public boolean isAvailableMapExists(@NotNull MatchMode matchMode) {
-        return this.maps.values().stream()
-                .anyMatch(map -> map.availableMatchModes().contains(matchMode));
+        return this.catalog.isAvailableMapExists(matchMode);
     }
 
     /**
@@ -132,8 +375,6 @@ public class MatchMapHandler {
     public List<MatchMap> getAvailableMaps(@NotNull MatchMode matchMode) {
         Objects.requireNonNull(matchMode);
 
-        return getAllMap().values().stream()
-                .filter(it -> it.availableMatchModes().contains(matchMode))
-                .toList();
+        return this.catalog.getAvailableMaps(matchMode);
     }
 }
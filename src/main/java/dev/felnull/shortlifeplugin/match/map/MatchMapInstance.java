@@ -1,22 +1,26 @@
 package dev.felnull.shortlifeplugin.match.map;
 
-import dev.felnull.shortlifeplugin.MsgHandler;
+import com.sk89q.worldedit.math.BlockVector3;
 import dev.felnull.shortlifeplugin.utils.MatchUtils;
-import dev.felnull.shortlifeplugin.utils.SLUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.entity.Player;
-import org.codehaus.plexus.util.FileUtils;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
 
 
 /**
@@ -43,7 +47,44 @@ public class MatchMapInstance {
     /**
      * ワールドファイルの操作用ロック
      */
-    private final Object worldFileLock = new Object();
+    private final Lock worldFileLock = new ReentrantLock();
+
+    /**
+     * 読み込み中のCompletableFuture<br/>
+     * 破棄時にまとめてキャンセルする
+     */
+    private final Queue<CompletableFuture<?>> loadTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 読み込みのために処理を行っているスレッド<br/>
+     * 破棄時に割り込みを行う
+     */
+    private final Set<Thread> loadThreads = new HashSet<>();
+
+    /**
+     * 試合中に変更されたブロックの変更前の状態<br/>
+     * ワールドを使い回す際に元に戻す
+     */
+    private final Map<BlockVector3, BlockState> changedBlocks = new HashMap<>();
+
+    /**
+     * 読み込み完了時に存在したエンティティ(マップの一部)<br/>
+     * ワールドを使い回す際に、試合中に発生するエンティティのうちこれ以外を削除する<br/>
+     * 読み込まれていたチャンクのエンティティのみのため、これに含まれないエンティティもマップの一部の場合がある
+     */
+    private final Set<UUID> mapEntities = new HashSet<>();
+
+    /**
+     * 読み込みの段階ごとの処理時間
+     */
+    private final MapLoadTimings loadTimings = new MapLoadTimings();
+
+    /**
+     * 読み込みの優先度の取得元<br/>
+     * 試合に割り当てられていない場合は、バックグラウンドの優先度
+     */
+    @NotNull
+    private DoubleSupplier loadPriority = () -> MatchMapLoadScheduler.BACKGROUND_PRIORITY;
 
     /**
      * 非同期読み込みされるマップワールド
@@ -62,15 +103,43 @@ public class MatchMapInstance {
     @NotNull
     private final MatchMap matchMap;
 
+    /**
+     * ワールドフォルダーの削除
+     */
+    @NotNull
+    private final WorldDeletionService worldDeletionService;
+
+    /**
+     * 割り当てられたアリーナの区画<br/>
+     * 専用のワールドを使用する場合、もしくはマップが区画に収まらず専用のワールドへ切り替えた場合はnull
+     */
+    @Nullable
+    private volatile MatchArenaSlot arenaSlot;
+
+    /**
+     * 専用のワールドを使用するマップインスタンスのコンストラクタ
+     *
+     * @param id                   ID
+     * @param matchMap             試合マップ
+     * @param worldDeletionService ワールドフォルダーの削除
+     */
+    protected MatchMapInstance(@NotNull String id, @NotNull MatchMap matchMap, @NotNull WorldDeletionService worldDeletionService) {
+        this(id, matchMap, worldDeletionService, null);
+    }
+
     /**
      * コンストラクタ
      *
-     * @param id       ID
-     * @param matchMap 試合マップ
+     * @param id                   ID
+     * @param matchMap             試合マップ
+     * @param worldDeletionService ワールドフォルダーの削除
+     * @param arenaSlot            割り当てられたアリーナの区画、専用のワールドを使用する場合はnull
      */
-    protected MatchMapInstance(@NotNull String id, @NotNull MatchMap matchMap) {
+    protected MatchMapInstance(@NotNull String id, @NotNull MatchMap matchMap, @NotNull WorldDeletionService worldDeletionService, @Nullable MatchArenaSlot arenaSlot) {
         this.id = id;
         this.matchMap = matchMap;
+        this.worldDeletionService = worldDeletionService;
+        this.arenaSlot = arenaSlot;
     }
 
     /**
@@ -80,6 +149,17 @@ public class MatchMapInstance {
         this.destroyed = true;
         File worldFolder = null;
 
+        // 読み込み中の処理を中断
+        cancelLoad();
+
+        // アリーナの区画の場合は、ワールドを残して区画のみ解放する
+        MatchArenaSlot slot = this.arenaSlot;
+        if (slot != null) {
+            this.strictWorld = null;
+            slot.release();
+            return;
+        }
+
         // マップワールドを破棄
         if (this.strictWorld != null) {
             List<Player> players = this.strictWorld.getPlayers();
@@ -98,16 +178,170 @@ public class MatchMapInstance {
             worldFolder = new File(MatchMapHandler.WORLD_NAME_PREFIX + id);
         }
 
+        // 重たいため別スレッドで削除
+        // https://www.riblab.net/blog/2023/09/10/devnote_2/
+        this.worldDeletionService.delete(worldFolder, this.worldFileLock);
+    }
 
-        // 重たい場合は別スレッドで削除するように変更してください。
-        synchronized (this.worldFileLock) {
-            try {
-                // https://www.riblab.net/blog/2023/09/10/devnote_2/
-                // なぜか消せる...?
-                FileUtils.deleteDirectory(worldFolder);
-            } catch (IOException e) {
-                SLUtils.reportError(e, MsgHandler.get("system-map-deletion-failed"));
+    /**
+     * 試合で使用したワールドを、次の試合で使用できるように元に戻す<br/>
+     * 変更されたブロックを戻し、試合中に発生するエンティティ(ドロップアイテムや発射物など)を削除する<br/>
+     * 額縁や防具立てなどのマップの一部になりうるエンティティは、読み込み完了時に記録できなかった場合もあるため削除しない<br/>
+     * プレイヤーが退出した後に、サーバーTickから呼び出してください。
+     */
+    protected void reset() {
+        World world = this.strictWorld;
+
+        if (world == null) {
+            return;
+        }
+
+        this.changedBlocks.values().forEach(blockState -> blockState.update(true, false));
+        this.changedBlocks.clear();
+
+        world.getEntities().stream()
+                .filter(entity -> isTransientEntity(entity) && !this.mapEntities.contains(entity.getUniqueId()))
+                .filter(entity -> this.arenaSlot == null || this.arenaSlot.contains(entity.getLocation()))
+                .forEach(Entity::remove);
+    }
+
+    /**
+     * 試合中に発生し、ワールドを使い回す際に削除するエンティティかどうか
+     *
+     * @param entity エンティティ
+     * @return 削除する場合はtrue
+     */
+    private static boolean isTransientEntity(@NotNull Entity entity) {
+        return entity instanceof Item || entity instanceof Projectile || entity instanceof ExperienceOrb || entity instanceof Mob
+                || entity instanceof TNTPrimed || entity instanceof FallingBlock || entity instanceof AreaEffectCloud;
+    }
+
+    /**
+     * ブロックの変更を記録する<br/>
+     * 同じ位置の変更は、最初の変更前の状態のみを記録する
+     *
+     * @param block 変更される前のブロック
+     */
+    public void recordBlockChange(@NotNull Block block) {
+        recordBlockChange(block.getState());
+    }
+
+    /**
+     * ブロックの変更を記録する<br/>
+     * 同じ位置の変更は、最初の変更前の状態のみを記録する
+     *
+     * @param blockState 変更される前のブロックの状態
+     */
+    public void recordBlockChange(@NotNull BlockState blockState) {
+        this.changedBlocks.putIfAbsent(BlockVector3.at(blockState.getX(), blockState.getY(), blockState.getZ()), blockState);
+    }
+
+    /**
+     * 読み込み完了時に存在するエンティティを、マップの一部として記録する
+     *
+     * @param world ワールド
+     */
+    protected void captureMapEntities(@NotNull World world) {
+        world.getEntities().stream()
+                .filter(entity -> !(entity instanceof Player))
+                .filter(entity -> this.arenaSlot == null || this.arenaSlot.contains(entity.getLocation()))
+                .forEach(entity -> this.mapEntities.add(entity.getUniqueId()));
+    }
+
+    /**
+     * 読み込み中のCompletableFutureを登録し、破棄時にキャンセルされるようにする<br/>
+     * 既に破棄済みの場合はすぐにキャンセルする
+     *
+     * @param loadTask 読み込み中のCompletableFuture
+     * @param <T>      CompletableFutureの結果の型
+     * @return 登録したCompletableFuture
+     */
+    protected <T> CompletableFuture<T> trackLoadTask(@NotNull CompletableFuture<T> loadTask) {
+        this.loadTasks.add(loadTask);
+
+        if (this.destroyed) {
+            loadTask.cancel(false);
+        }
+
+        return loadTask;
+    }
+
+    /**
+     * 読み込みの段階ごとの処理時間を取得
+     *
+     * @return 段階ごとの処理時間
+     */
+    protected MapLoadTimings getLoadTimings() {
+        return this.loadTimings;
+    }
+
+    /**
+     * 読み込みの優先度を取得<br/>
+     * 値が大きいほど優先して読み込まれる<br/>
+     * 試合の状態を参照するため、サーバーTickから呼び出してください。
+     *
+     * @return 優先度
+     */
+    public double getLoadPriority() {
+        return this.loadPriority.getAsDouble();
+    }
+
+    /**
+     * 読み込みの優先度の取得元を設定
+     *
+     * @param loadPriority 優先度の取得元
+     */
+    protected void setLoadPriority(@NotNull DoubleSupplier loadPriority) {
+        this.loadPriority = loadPriority;
+    }
+
+    /**
+     * 破棄時に割り込みされるように、現在のスレッドで処理を行う
+     *
+     * @param task 処理
+     * @param <T>  処理結果の型
+     * @return 処理結果
+     */
+    protected <T> T runInterruptibly(@NotNull Supplier<T> task) {
+        synchronized (this.loadThreads) {
+            if (this.destroyed) {
+                throw new CancellationException("試合マップインスタンスが破棄されています");
             }
+
+            this.loadThreads.add(Thread.currentThread());
+        }
+
+        try {
+            return task.get();
+        } finally {
+            synchronized (this.loadThreads) {
+                this.loadThreads.remove(Thread.currentThread());
+            }
+
+            // 登録解除後に割り込み状態を解除して、スレッドプールの他の処理に影響しないようにする
+            boolean interrupted = Thread.interrupted();
+            if (interrupted && !this.destroyed) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 読み込み中のCompletableFutureをキャンセルし、処理中のスレッドに割り込む
+     */
+    private void cancelLoad() {
+        // 後続の処理が実行されるように、読み込み中の処理を先にキャンセルする
+        CompletableFuture<?> loadTask;
+        while ((loadTask = this.loadTasks.poll()) != null) {
+            loadTask.cancel(false);
+        }
+
+        if (this.mapWorld != null) {
+            this.mapWorld.cancel(false);
+        }
+
+        synchronized (this.loadThreads) {
+            this.loadThreads.forEach(Thread::interrupt);
         }
     }
 
@@ -173,6 +407,49 @@ public class MatchMapInstance {
         return this.strictWorld != null && this.strictWorld == world;
     }
 
+    /**
+     * 割り当てられたアリーナの区画を取得
+     *
+     * @return アリーナの区画、専用のワールドを使用する場合は空
+     */
+    public Optional<MatchArenaSlot> getArenaSlot() {
+        return Optional.ofNullable(this.arenaSlot);
+    }
+
+    /**
+     * アリーナの区画を解放し、専用のワールドを使用するように切り替える<br/>
+     * 読み込み開始前に、マップが区画に収まらないと分かった場合に使用する
+     */
+    protected void detachArenaSlot() {
+        MatchArenaSlot slot = this.arenaSlot;
+
+        if (slot != null) {
+            this.arenaSlot = null;
+            slot.release();
+        }
+    }
+
+    /**
+     * アリーナの区画の原点を取得
+     *
+     * @return 区画の原点、専用のワールドを使用する場合は原点(0, 0, 0)
+     */
+    @NotNull
+    public BlockVector3 getSlotOffset() {
+        return this.arenaSlot != null ? this.arenaSlot.getOrigin() : BlockVector3.ZERO;
+    }
+
+    /**
+     * 指定された位置が、このマップインスタンスの厳密なワールド(アリーナの場合は区画)内かどうか
+     *
+     * @param location 位置
+     * @return 含まれるかどうか
+     */
+    public boolean isStrictLocationMatch(@NotNull Location location) {
+        World world = location.getWorld();
+        return world != null && isStrictWorldMatch(world) && (this.arenaSlot == null || this.arenaSlot.contains(location));
+    }
+
     public Optional<World> getStrictWorld() {
         return Optional.ofNullable(strictWorld);
     }
@@ -181,7 +458,7 @@ public class MatchMapInstance {
         return destroyed;
     }
 
-    public Object getWorldFileLock() {
+    public Lock getWorldFileLock() {
         return worldFileLock;
     }
 
@@ -1,20 +1,15 @@
 package dev.felnull.shortlifeplugin.match.map;
 
-import com.google.common.base.Suppliers;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
 import com.sk89q.worldedit.function.mask.Masks;
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
@@ -24,7 +19,6 @@ import com.sk89q.worldedit.math.transform.Identity;
 import com.sk89q.worldedit.math.transform.Transform;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
-import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.protection.flags.Flags;
@@ -33,30 +27,26 @@ import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
-import dev.felnull.fnjl.concurrent.IkisugiExecutors;
-import dev.felnull.fnjl.concurrent.InvokeExecutor;
-import dev.felnull.fnjl.util.FNDataUtil;
 import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.SLConfig;
 import dev.felnull.shortlifeplugin.match.MatchMode;
 import dev.felnull.shortlifeplugin.utils.SLFiles;
 import dev.felnull.shortlifeplugin.utils.SLUtils;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
-import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.tuple.Pair;
 import org.bukkit.*;
-import org.bukkit.block.data.BlockData;
-import org.codehaus.plexus.util.FileUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Objects;
-import java.util.UUID;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import static dev.felnull.shortlifeplugin.match.map.MatchMapHandler.WORLD_NAME_PREFIX;
 
@@ -73,14 +63,10 @@ public class MatchMapInstanceLoader {
     private static final String GLOBAL_REGION_ID = "__global__";
 
     /**
-     * 地形生成を分割する際のサイズ
+     * スケマティックの内容のハッシュ関数<br/>
+     * マーカーのインデックスに永続化するため、起動ごとに結果が変わらないものを使用する
      */
-    private static final int SCHEM_GENERATE_SPLIT_SIZE = 16;
-
-    /**
-     * ワールドのキャッシュ生成時に送信する注意喚起メッセージ
-     */
-    private static final Component WORLD_CACHE_ATTENTION_MESSAGE = MsgHandler.getComponent("match-map-cache-attention").color(NamedTextColor.GOLD);
+    private static final HashFunction SCHEM_HASH_FUNCTION = Hashing.murmur3_128();
 
     /**
      * Tickに同期して処理を行うExecutor
@@ -89,14 +75,29 @@ public class MatchMapInstanceLoader {
 
     /**
      * 構造物生成用のTickに同期して処理を行うExecutor<br/>
-     * 1Tickに1回のみ処理が行われる
+     * 1Tickごとに時間予算内で処理が行われる
+     */
+    private final SchematicPasteScheduler pasteScheduler = new SchematicPasteScheduler();
+
+    /**
+     * 試合用ワールドの複製元となる空のテンプレートワールド
+     */
+    private final MatchWorldTemplate worldTemplate = new MatchWorldTemplate(this);
+
+    /**
+     * 複数のマップインスタンスで共有するアリーナワールド
      */
-    private final InvokeExecutor generateTickExecutor = IkisugiExecutors.newInvokeExecutor();
+    private final MatchArenaWorld arenaWorld = new MatchArenaWorld(this);
 
     /**
-     * 試合用ワールド情報のキャッシュ
+     * マーカーの永続インデックス
      */
-    private final Supplier<CompletableFuture<File>> worldCache = Suppliers.memoize(this::createWorldCache);
+    private final MapMarkerIndex mapMarkerIndex = new MapMarkerIndex();
+
+    /**
+     * 読み込み済みスケマティックのキャッシュ
+     */
+    private final SchematicClipboardCache clipboardCache = new SchematicClipboardCache(SCHEM_HASH_FUNCTION);
 
     /**
      * マーカーのキャッシュ
@@ -106,34 +107,58 @@ public class MatchMapInstanceLoader {
             .build();
 
     /**
-     * 非同期で処理を行うExecutor
+     * 試合用ワールドのファイル操作の速度制限<br/>
+     * 複製と削除で共有する
+     */
+    private final IoRateLimiter ioRateLimiter = new IoRateLimiter(SLConfig.getWorldIoMaxBytesPerSecond(), SLConfig.getWorldIoMaxOpsPerSecond());
+
+    /**
+     * ワールドフォルダーの複製
+     */
+    private final WorldFolderCloner worldFolderCloner = new WorldFolderCloner(this.ioRateLimiter);
+
+    /**
+     * ワールドフォルダーの削除
      */
-    private final ExecutorService asyncExecutor = Executors.newFixedThreadPool(Math.max(Runtime.getRuntime().availableProcessors(), 1),
-            new BasicThreadFactory.Builder().namingPattern("map-loader-worker-%d").daemon(true).build());
+    private final WorldDeletionService worldDeletionService = new WorldDeletionService(this.ioRateLimiter);
+
+    /**
+     * マップの事前生成
+     */
+    private final MatchMapBaker mapBaker = new MatchMapBaker(this);
+
+    /**
+     * 試合用マップごとの読み込み時間の統計
+     */
+    private final MapLoadMetrics loadMetrics = new MapLoadMetrics();
+
+    /**
+     * 読み込み中のマップインスタンス数
+     */
+    private final AtomicInteger loadingCount = new AtomicInteger();
+
+    /**
+     * 非同期で処理を行うIO用とCPU用のExecutor
+     */
+    private final MapLoadExecutors executors = new MapLoadExecutors();
+
+    /**
+     * 変換中のスケマティックのID
+     */
+    private final Set<String> compilingSchematics = ConcurrentHashMap.newKeySet();
 
     /**
      * 非同期処理用Executorを停止
      */
     public void stopAsyncExecutor() {
-        this.asyncExecutor.shutdown();
-        try {
-            if (!this.asyncExecutor.awaitTermination(194, TimeUnit.SECONDS)) {
-                this.asyncExecutor.shutdownNow();
-                if (!this.asyncExecutor.awaitTermination(194, TimeUnit.SECONDS)) {
-                    SLUtils.getLogger().warning(MsgHandler.get("system-async-executor-stop-failed"));
-                }
-            }
-        } catch (InterruptedException e) {
-            this.asyncExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+        this.executors.shutdown();
     }
 
     /**
      * Tick処理
      */
     protected void tick() {
-        this.generateTickExecutor.runTasks(1);
+        this.pasteScheduler.tick();
     }
 
     /**
@@ -144,98 +169,310 @@ public class MatchMapInstanceLoader {
      * @return 完成した試合用マップ
      */
     public CompletableFuture<MatchMapWorld> load(@NotNull MatchMode matchMode, @NotNull MatchMapInstance matchMapInstance) {
-        CompletableFuture<Pair<Clipboard, MapMarkerSet>> schemCompletableFuture = loadSchematic(matchMapInstance);
-        CompletableFuture<World> worldCompletableFuture = loadWorld(matchMapInstance);
+        this.loadingCount.incrementAndGet();
+        long startTime = System.nanoTime();
+        MapLoadTimings timings = matchMapInstance.getLoadTimings();
+
+        // アリーナの区画の場合は、マップが区画に収まるか確認してから読み込む
+        CompletableFuture<MatchMapWorld> mapWorldCompletableFuture = matchMapInstance.getArenaSlot()
+                .map(slot -> matchMapInstance.trackLoadTask(checkArenaSlotFit(matchMapInstance, slot)
+                        .thenComposeAsync(unused -> {
+                            /* Tick同期で読み込みを開始 */
+                            assertNoDestroyedInstance(matchMapInstance);
+                            return loadMapWorld(matchMapInstance);
+                        }, this.tickExecutor)))
+                .orElseGet(() -> loadMapWorld(matchMapInstance));
+
+        // 破棄時に検証処理がキャンセルされることで、読み込み中の数も減る
+        return matchMapInstance.trackLoadTask(mapWorldCompletableFuture
+                        .thenApplyAsync(matchMapWorld -> {
+                            /* Tick同期でマップ検証 */
+                            assertNoDestroyedInstance(matchMapInstance);
+                            timings.time(MapLoadStage.VALIDATION, () -> {
+                                matchMode.mapValidator().validate(matchMapWorld);
+                                return null;
+                            });
+                            matchMapInstance.captureMapEntities(matchMapWorld.getWorld());
+                            return matchMapWorld;
+                        }, this.tickExecutor))
+                .whenComplete((matchMapWorld, throwable) -> {
+                    this.loadingCount.decrementAndGet();
+
+                    // 破棄による中断は失敗として扱わない
+                    String mapId = matchMapInstance.getMatchMap().id();
+                    if (throwable == null) {
+                        timings.record(MapLoadStage.TOTAL, System.nanoTime() - startTime);
+                        this.loadMetrics.record(mapId, timings);
+                    } else if (!matchMapInstance.isDestroyed()) {
+                        this.loadMetrics.recordFailure(mapId);
+                    }
+                });
+    }
+
+    /**
+     * 事前生成済みのワールドのコピー、もしくは構造物生成で試合用マップを作成する
+     *
+     * @param matchMapInstance マップインスタンス(ワールドは空)
+     * @return 完成した試合用マップ
+     */
+    private CompletableFuture<MatchMapWorld> loadMapWorld(@NotNull MatchMapInstance matchMapInstance) {
+        // 事前生成済みであれば、ワールドをコピーするのみで構造物生成は行わない
+        // アリーナの区画にはワールドをコピーできないため、常に構造物生成を行う
+        Optional<MatchMapBaker.BakedMap> bakedMap = matchMapInstance.getArenaSlot().isPresent()
+                ? Optional.empty() : this.mapBaker.getBakedMap(matchMapInstance.getMatchMap());
+
+        return bakedMap
+                .map(baked -> loadBaked(matchMapInstance, baked))
+                .orElseGet(() -> generate(matchMapInstance));
+    }
+
+    /**
+     * マップがアリーナの区画に収まるか確認する<br/>
+     * 収まらない場合は、隣の区画の試合を壊さないように区画を解放し、専用のワールドを使用するように切り替える
+     *
+     * @param matchMapInstance マップインスタンス
+     * @param slot             割り当てられた区画
+     * @return 確認のCompletableFuture
+     */
+    private CompletableFuture<Void> checkArenaSlotFit(@NotNull MatchMapInstance matchMapInstance, @NotNull MatchArenaSlot slot) {
+        return CompletableFuture.supplyAsync(() -> {
+            /* CPU用スレッドでスケマティックを読み込み、生成範囲を求める */
+
+            assertNoDestroyedInstance(matchMapInstance);
+
+            File schemFile = getSchematicFile(matchMapInstance.getMatchMap());
+
+            // 存在しない場合は、スケマティックの読み込み時に失敗させる
+            if (!schemFile.isFile()) {
+                return null;
+            }
+
+            try {
+                // 読み込んだクリップボードはキャッシュされ、構造物生成でもそのまま使用される
+                Clipboard clipboard = this.clipboardCache.get(schemFile, matchMapInstance.getLoadTimings()).clipboard();
+                return getPasteRegion(clipboard, getPasteOffset(matchMapInstance));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, this.executors.getCpuExecutor()).thenAcceptAsync(pasteRegion -> {
+            /* Tick同期で区画に収まらない場合は専用のワールドへ切り替える */
+
+            assertNoDestroyedInstance(matchMapInstance);
+
+            if (pasteRegion != null && !slot.contains(pasteRegion)) {
+                String mapId = matchMapInstance.getMatchMap().id();
+                SLUtils.reportError(new IllegalStateException(String.format("マップ(%s)の生成範囲(%s - %s)がアリーナの区画(%d)に収まりません",
+                                mapId, pasteRegion.getMinimumPoint(), pasteRegion.getMaximumPoint(), slot.getIndex())),
+                        MsgHandler.getFormatted("system-arena-slot-map-too-large", mapId));
+                matchMapInstance.detachArenaSlot();
+            }
+        }, this.tickExecutor);
+    }
+
+    /**
+     * 事前生成済みのワールドから試合用マップをロードする
+     *
+     * @param matchMapInstance マップインスタンス(ワールドは空)
+     * @param bakedMap         事前生成済みマップ
+     * @return 完成した試合用マップ
+     */
+    private CompletableFuture<MatchMapWorld> loadBaked(@NotNull MatchMapInstance matchMapInstance, @NotNull MatchMapBaker.BakedMap bakedMap) {
+        SLUtils.getLogger().info(String.format("試合用マップインスタンス(%s)に事前生成済みマップを使用", matchMapInstance.getId()));
+
+        return matchMapInstance.trackLoadTask(loadWorld(matchMapInstance, bakedMap).thenApplyAsync(world -> {
+            /* Tick同期で試合マップワールドを作成 */
+            assertNoDestroyedInstance(matchMapInstance);
+            return new MatchMapWorld(matchMapInstance.getMatchMap(), world, bakedMap.markerSet(), matchMapInstance.getSlotOffset());
+        }, this.tickExecutor));
+    }
+
+    /**
+     * 空のワールドに構造物を生成して、試合用マップを作成する<br/>
+     * 試合モードによる検証は行わない
+     *
+     * @param matchMapInstance マップインスタンス(ワールドは空)
+     * @return 構造物生成済みの試合用マップ
+     */
+    protected CompletableFuture<MatchMapWorld> generate(@NotNull MatchMapInstance matchMapInstance) {
+        CompletableFuture<PreparedSchematic> schemCompletableFuture = loadSchematic(matchMapInstance);
+        CompletableFuture<World> worldCompletableFuture = matchMapInstance.getArenaSlot()
+                .map(slot -> loadArenaWorld(matchMapInstance, slot))
+                .orElseGet(() -> loadWorld(matchMapInstance, null));
 
-        CompletableFuture<Void> schemGenerateCompletableFuture = worldCompletableFuture
+        CompletableFuture<Void> schemGenerateCompletableFuture = matchMapInstance.trackLoadTask(worldCompletableFuture
                 .thenCombineAsync(schemCompletableFuture,
-                        (world, clipboardMapMarkerSetPair) -> {
+                        (world, preparedSchematic) -> {
                             /* Tick同期でワールドと生成物のクリップボードを合体 */
                             assertNoDestroyedInstance(matchMapInstance);
-                            return Pair.of(world, clipboardMapMarkerSetPair.getLeft());
+                            return Pair.of(world, preparedSchematic);
                         }, this.tickExecutor)
-                .thenComposeAsync(worldClipboardMapMarkerSetTriple -> {
+                .thenComposeAsync(worldPreparedSchematicPair -> {
                     /* Tick同期で構造物生成コンプリータブルフューチャーを作成 */
                     assertNoDestroyedInstance(matchMapInstance);
-                    return generateSchematicStructure(matchMapInstance, worldClipboardMapMarkerSetTriple.getRight(), worldClipboardMapMarkerSetTriple.getLeft());
-                }, this.tickExecutor);
+                    return generateSchematicStructure(matchMapInstance, worldPreparedSchematicPair.getRight(), worldPreparedSchematicPair.getLeft());
+                }, this.tickExecutor));
 
-        return schemCompletableFuture.thenCombineAsync(worldCompletableFuture, (clipboardMapMarkerSetPair, world) -> {
+        return matchMapInstance.trackLoadTask(schemCompletableFuture.thenCombineAsync(worldCompletableFuture, (preparedSchematic, world) -> {
                     /* Tick同期でワールドとマーカの集まりを合体 */
                     assertNoDestroyedInstance(matchMapInstance);
-                    return Pair.of(world, clipboardMapMarkerSetPair.getRight());
+                    return Pair.of(world, preparedSchematic.markerSet());
                 }, this.tickExecutor)
                 .thenCombineAsync(schemGenerateCompletableFuture, (worldMapMarkerSetPair, unused) -> {
                     /* Tick同期で試合マップワールドを作成 */
                     assertNoDestroyedInstance(matchMapInstance);
-                    return new MatchMapWorld(matchMapInstance.getMatchMap(), worldMapMarkerSetPair.getKey(), worldMapMarkerSetPair.getRight());
-                }, this.tickExecutor)
-                .thenApplyAsync(matchMapWorld -> {
-                    /* Tick同期でマップ検証 */
-                    assertNoDestroyedInstance(matchMapInstance);
-                    matchMode.mapValidator().validate(matchMapWorld);
-                    return matchMapWorld;
-                }, this.tickExecutor);
+                    return new MatchMapWorld(matchMapInstance.getMatchMap(), worldMapMarkerSetPair.getKey(), worldMapMarkerSetPair.getRight(),
+                            matchMapInstance.getSlotOffset());
+                }, this.tickExecutor));
     }
 
     /**
-     * 構造物の生成をTick同期で行うコンプリータブルフューチャーを作成する
+     * マップの事前生成を取得
      *
-     * @param matchMapInstance 試合マップインスタンス
-     * @param clipboard        スケマティックのクリップボード
-     * @param world            ワールド
-     * @return コンプリータブルフューチャー
+     * @return マップの事前生成
      */
-    private CompletableFuture<Void> generateSchematicStructure(MatchMapInstance matchMapInstance, Clipboard clipboard, World world) {
+    public MatchMapBaker getMapBaker() {
+        return this.mapBaker;
+    }
 
-        MatchMap matchMap = matchMapInstance.getMatchMap();
+    /**
+     * 空のテンプレートワールドを取得
+     *
+     * @return テンプレートワールド
+     */
+    public MatchWorldTemplate getWorldTemplate() {
+        return this.worldTemplate;
+    }
 
-        // サイズを取得
-        BlockVector3 sizeMin = clipboard.getMinimumPoint();
-        BlockVector3 sizeMax = clipboard.getMaximumPoint();
+    /**
+     * 複数のマップインスタンスで共有するアリーナワールドを取得
+     *
+     * @return アリーナワールド
+     */
+    public MatchArenaWorld getArenaWorld() {
+        return this.arenaWorld;
+    }
 
-        int minX = sizeMin.getX();
-        int minZ = sizeMin.getZ();
-        int maxX = sizeMax.getX();
-        int maxZ = sizeMax.getZ();
+    /**
+     * ワールドフォルダーの削除を取得
+     *
+     * @return ワールドフォルダーの削除
+     */
+    public WorldDeletionService getWorldDeletionService() {
+        return this.worldDeletionService;
+    }
 
-        int sizeX = sizeMax.getX() - minX;
-        int sizeZ = sizeMax.getZ() - minZ;
+    /**
+     * ワールドフォルダーの複製を取得
+     *
+     * @return ワールドフォルダーの複製
+     */
+    public WorldFolderCloner getWorldFolderCloner() {
+        return this.worldFolderCloner;
+    }
 
-        // 分割数を求める
-        int splitX = (int) Math.ceil((double) sizeX / SCHEM_GENERATE_SPLIT_SIZE);
-        int splitZ = (int) Math.ceil((double) sizeZ / SCHEM_GENERATE_SPLIT_SIZE);
+    /**
+     * ワールドフォルダーを移動する<br/>
+     * 移動もファイル操作の速度制限に含め、別のファイルシステムへ移動する場合は速度を制限して複製してから削除する
+     *
+     * @param sourceFolder 移動元のフォルダー
+     * @param targetFolder 移動先のフォルダー (存在しないこと)
+     * @throws IOException 移動に失敗
+     */
+    public void moveWorldFolder(@NotNull File sourceFolder, @NotNull File targetFolder) throws IOException {
+        this.ioRateLimiter.acquireOperation();
 
-        // 分割された塊ごとにCompletableFutureを作成してつなげる
-        // allOfを使用すると途中でキャンセルされた際に無駄なタスクが走るため、thenRunAsyncでつなげる
-        CompletableFuture<Void> cf = null;
-        for (int schemX = 0; schemX < splitX; schemX++) {
-            for (int schemZ = 0; schemZ < splitZ; schemZ++) {
+        try {
+            Files.move(sourceFolder.toPath(), targetFolder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            this.worldFolderCloner.clone(sourceFolder, targetFolder);
+            this.worldDeletionService.deleteNow(sourceFolder);
+        }
+    }
 
-                int schemOffsetX = minX + schemX * SCHEM_GENERATE_SPLIT_SIZE;
-                int schemOffsetZ = minZ + schemZ * SCHEM_GENERATE_SPLIT_SIZE;
-                int schemSizeX = Math.min(maxX, schemOffsetX + SCHEM_GENERATE_SPLIT_SIZE);
-                int schemSizeZ = Math.min(maxZ, schemOffsetZ + SCHEM_GENERATE_SPLIT_SIZE);
+    /**
+     * 非同期で処理を行うIO用とCPU用のExecutorを取得
+     *
+     * @return Executor
+     */
+    public MapLoadExecutors getExecutors() {
+        return this.executors;
+    }
 
-                Region region = new CuboidRegion(BlockVector3.at(schemOffsetX, sizeMin.getY(), schemOffsetZ), BlockVector3.at(schemSizeX, sizeMax.getY(), schemSizeZ));
+    /**
+     * ファイルの読み書きなど、待機の多い処理を行うExecutorを取得
+     *
+     * @return IO用Executor
+     */
+    protected Executor getIoExecutor() {
+        return this.executors.getIoExecutor();
+    }
 
-                if (cf == null) {
-                    cf = CompletableFuture.runAsync(() -> generateSplitSchematicOnTick(region, matchMap.offset(), matchMapInstance, clipboard, world),
-                            this.generateTickExecutor);
-                } else {
-                    cf = cf.thenRunAsync(() -> generateSplitSchematicOnTick(region, matchMap.offset(), matchMapInstance, clipboard, world), this.generateTickExecutor);
-                }
-            }
-        }
+    /**
+     * 構造物生成のスケジューラーを取得
+     *
+     * @return スケジューラー
+     */
+    public SchematicPasteScheduler getPasteScheduler() {
+        return this.pasteScheduler;
+    }
 
-        if (cf == null) {
-            cf = CompletableFuture.completedFuture(null);
-        }
+    /**
+     * 試合用マップごとの読み込み時間の統計を取得
+     *
+     * @return 読み込み時間の統計
+     */
+    public MapLoadMetrics getLoadMetrics() {
+        return this.loadMetrics;
+    }
 
-        return cf;
+    /**
+     * 読み込み中のマップインスタンス数を取得
+     *
+     * @return 読み込み中の数
+     */
+    public int getLoadingCount() {
+        return this.loadingCount.get();
+    }
+
+    /**
+     * 構造物の生成をTick同期で行うコンプリータブルフューチャーを作成する
+     *
+     * @param matchMapInstance  試合マップインスタンス
+     * @param preparedSchematic 生成準備済みのスケマティック
+     * @param world             ワールド
+     * @return コンプリータブルフューチャー
+     */
+    private CompletableFuture<Void> generateSchematicStructure(MatchMapInstance matchMapInstance, PreparedSchematic preparedSchematic, World world) {
+
+        BlockVector3 pasteOffset = getPasteOffset(matchMapInstance);
+        ClipboardView clipboard = preparedSchematic.clipboard();
+        List<Region> pasteSlices = preparedSchematic.pasteSlices();
+
+        long startTick = this.pasteScheduler.getTickCount();
+        AtomicLong pasteNanos = new AtomicLong();
+
+        // 分割された塊ごとのタスクをまとめてスケジューラーへ登録
+        // マップインスタンスが破棄された際は、スケジューラーから残りのタスクがまとめて破棄される
+        List<Runnable> sliceTasks = pasteSlices.stream()
+                .<Runnable>map(region -> () -> {
+                    long sliceStartTime = System.nanoTime();
+                    generateSplitSchematicOnTick(region, pasteOffset, matchMapInstance, clipboard, world);
+                    pasteNanos.addAndGet(System.nanoTime() - sliceStartTime);
+                })
+                .toList();
+
+        CompletableFuture<Void> cf = matchMapInstance.trackLoadTask(this.pasteScheduler.schedule(sliceTasks, matchMapInstance::getLoadPriority));
+
+        int sliceCount = pasteSlices.size();
+        return cf.thenRun(() -> {
+            matchMapInstance.getLoadTimings().record(MapLoadStage.PASTE, pasteNanos.get());
+            long tickCount = Math.max(this.pasteScheduler.getTickCount() - startTick, 1);
+            SLUtils.getLogger().info(String.format("マップインスタンス(%s)の構造物生成完了: %d分割, %dTick, 生成時間 %.1fms, %.2f分割/Tick",
+                    matchMapInstance.getId(), sliceCount, tickCount, pasteNanos.get() / 1_000_000d, (double) sliceCount / tickCount));
+        });
     }
 
-    private void generateSplitSchematicOnTick(Region region, BlockVector3 offset, MatchMapInstance matchMapInstance, Clipboard clipboard, World world) {
+    private void generateSplitSchematicOnTick(Region region, BlockVector3 offset, MatchMapInstance matchMapInstance, ClipboardView clipboard, World world) {
         assertNoDestroyedInstance(matchMapInstance);
         com.sk89q.worldedit.world.World weWorld = BukkitAdapter.adapt(world);
 
@@ -253,16 +490,17 @@ public class MatchMapInstanceLoader {
         }
     }
 
-    private CompletableFuture<Pair<Clipboard, MapMarkerSet>> loadSchematic(@NotNull MatchMapInstance matchMapInstance) {
+    private CompletableFuture<PreparedSchematic> loadSchematic(@NotNull MatchMapInstance matchMapInstance) {
         String worldId = matchMapInstance.getId();
+        MapLoadTimings timings = matchMapInstance.getLoadTimings();
 
-        return CompletableFuture.supplyAsync(() -> {
-            /* 非同期でスケマティックファイルを読み込む */
+        CompletableFuture<SchematicClipboardCache.LoadedSchematic> loadedSchematicCompletableFuture = matchMapInstance.trackLoadTask(CompletableFuture.supplyAsync(() -> {
+            /* CPU用スレッドでスケマティックファイルを読み込む */
 
             assertNoDestroyedInstance(matchMapInstance);
 
             // スケマティックファイルをクリップボードへ読み込む
-            File schemFile = new File(SLFiles.schematicFolder(), matchMapInstance.getMatchMap().schematic() + ".schem");
+            File schemFile = getSchematicFile(matchMapInstance.getMatchMap());
 
             if (!schemFile.exists()) {
                 throw new RuntimeException(String.format("%sは存在しません", schemFile.getName()));
@@ -272,44 +510,38 @@ public class MatchMapInstanceLoader {
                 throw new RuntimeException(String.format("%sはディレクトリです", schemFile.getName()));
             }
 
-            Clipboard clipboard;
-            ClipboardFormat format = Objects.requireNonNull(ClipboardFormats.findByFile(schemFile));
-            HashCode hashCode;
+            SchematicClipboardCache.LoadedSchematic loadedSchematic;
 
-            try (HashingInputStream hashingInputStream = new HashingInputStream(Hashing.goodFastHash(160), new BufferedInputStream(new FileInputStream(schemFile)));
-                 ClipboardReader reader = format.getReader(hashingInputStream)) {
-                clipboard = reader.read();
-                hashCode = hashingInputStream.hash();
+            try {
+                loadedSchematic = this.clipboardCache.get(schemFile, timings);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
 
             SLUtils.getLogger().info(String.format("試合用マップインスタンス(%s)のスケマティック読み込み完了", worldId));
 
-            return Pair.of(clipboard, hashCode);
-        }, asyncExecutor).thenApplyAsync(clipboardAndHashCode -> {
-            /* 非同期でマーカーの集まりを取得する */
+            return loadedSchematic;
+        }, this.executors.getCpuExecutor()));
 
-            assertNoDestroyedInstance(matchMapInstance);
+        return matchMapInstance.trackLoadTask(loadedSchematicCompletableFuture.thenApplyAsync(loadedSchematic -> {
+            /* CPU用スレッドでマーカーの集まりを取得する */
 
-            Clipboard clipboard = clipboardAndHashCode.getLeft();
-            MapMarkerSet markerSet;
+            assertNoDestroyedInstance(matchMapInstance);
 
-            // キャッシュを参照して、存在しなければマーカーの集まりを取得する
-            try {
-                markerSet = mapMarkerCache.get(clipboardAndHashCode.getRight(), () -> computeMarkerSet(clipboard));
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e.getCause());
-            }
+            Clipboard clipboard = loadedSchematic.clipboard();
+            String schematicId = matchMapInstance.getMatchMap().schematic();
+            MapMarkerSet markerSet = timings.time(MapLoadStage.MARKER_SCAN, () -> getMarkerSet(schematicId, loadedSchematic));
+            compileSchematic(schematicId, loadedSchematic, markerSet);
 
-            // ジグソーブロックを置き換え
+            // キャッシュされたクリップボードを変更しないように、ビューを経由してジグソーブロックを置き換え
+            ClipboardView clipboardView = new ClipboardView(clipboard);
             for (MapMarker maker : markerSet.makers().values()) {
                 if (maker instanceof JigsawMapMarker jigsawMapMarker) {
                     Material replaceMaterial = Material.matchMaterial(jigsawMapMarker.replaceBlockId().toString());
                     if (replaceMaterial != null && replaceMaterial.isBlock()) {
                         BlockState replaceBlock = BukkitAdapter.adapt(replaceMaterial.createBlockData());
                         try {
-                            clipboard.setBlock(jigsawMapMarker.position().add(clipboard.getOrigin()), replaceBlock);
+                            clipboardView.setBlock(jigsawMapMarker.position().add(clipboard.getOrigin()), replaceBlock);
                         } catch (WorldEditException e) {
                             throw new RuntimeException(e);
                         }
@@ -318,60 +550,252 @@ public class MatchMapInstanceLoader {
             }
 
             SLUtils.getLogger().info(String.format("試合用マップインスタンス(%s)のマーカー読み込み完了", worldId));
-            return Pair.of(clipboard, markerSet);
-        }, asyncExecutor);
+
+            // チャンク単位で生成する範囲を決める
+            BlockVector3 pasteOffset = getPasteOffset(matchMapInstance);
+            List<Region> pasteSlices = timings.time(MapLoadStage.PASTE_PLAN,
+                    () -> SchematicPastePlanner.plan(this.executors.getCpuPool(), clipboardView, pasteOffset, markerSet));
+
+            // アリーナの区画の場合は、解放時に片付ける範囲を記録する
+            matchMapInstance.getArenaSlot().ifPresent(slot -> {
+                CuboidRegion pasteRegion = getPasteRegion(clipboard, pasteOffset);
+
+                // 読み込み開始時に確認済みだが、隣の区画を壊さないように生成前にも確認する
+                if (!slot.contains(pasteRegion)) {
+                    throw new RuntimeException(String.format("マップの生成範囲がアリーナの区画(%d)に収まりません", slot.getIndex()));
+                }
+
+                slot.setUsedRegion(slot.clamp(pasteRegion));
+            });
+
+            SLUtils.getLogger().info(String.format("試合用マップインスタンス(%s)の生成範囲決定: %d分割", worldId, pasteSlices.size()));
+            return new PreparedSchematic(clipboardView, markerSet, pasteSlices);
+        }, this.executors.getCpuExecutor()));
     }
 
     /**
-     * 読み込んだスケマティックからマーカーの集まりを取得する
+     * スケマティックを読み込み、マーカーの集まりをキャッシュへ用意しておく<br/>
+     * スケマティックが更新された際に、次の読み込みで走査を行わないようにするために使用する
      *
-     * @param clipboard スケマティックが読み込まれたクリップボード
+     * @param schematicId スケマティックのID
+     * @return 完了するCompletableFuture
+     */
+    public CompletableFuture<Void> warmSchematic(@NotNull String schematicId) {
+        return CompletableFuture.runAsync(() -> {
+            File schemFile = getSchematicFile(schematicId);
+
+            if (!schemFile.isFile()) {
+                return;
+            }
+
+            try {
+                SchematicClipboardCache.LoadedSchematic loadedSchematic = this.clipboardCache.get(schemFile, new MapLoadTimings());
+                compileSchematic(schematicId, loadedSchematic, getMarkerSet(schematicId, loadedSchematic));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            SLUtils.getLogger().info(String.format("スケマティック(%s)のマーカーを用意しました", schematicId));
+        }, this.executors.getCpuExecutor());
+    }
+
+    /**
+     * スケマティックのマーカーの集まりを取得する<br/>
+     * キャッシュとインデックスを参照して、存在しなければ走査してインデックスへ保存する
+     *
+     * @param schematicId     スケマティックのID
+     * @param loadedSchematic 読み込まれたスケマティック
      * @return マーカーの集まり
      */
-    private MapMarkerSet computeMarkerSet(Clipboard clipboard) {
-        ImmutableMultimap.Builder<NamespacedKey, MapMarker> mapMarksersBuilder = new ImmutableMultimap.Builder<>();
-
-        BlockVector3 sizeMin = clipboard.getMinimumPoint();
-        int sizeMinX = sizeMin.getX();
-        int sizeMinY = sizeMin.getY();
-        int sizeMinZ = sizeMin.getZ();
-
-        BlockVector3 sizeMax = clipboard.getMaximumPoint();
-        int sizeMaxX = sizeMax.getX();
-        int sizeMaxY = sizeMax.getY();
-        int sizeMaxZ = sizeMax.getZ();
-
-        for (int x = sizeMinX; x < sizeMaxX; x++) {
-            for (int y = sizeMinY; y < sizeMaxY; y++) {
-                for (int z = sizeMinZ; z < sizeMaxZ; z++) {
-                    BlockVector3 pos = BlockVector3.at(x, y, z);
-                    BlockState block = clipboard.getBlock(pos);
-                    BlockData blockData = BukkitAdapter.adapt(block);
-
-                    if (blockData.getMaterial() == Material.JIGSAW) {
-                        BaseBlock baseBlock = clipboard.getFullBlock(pos);
-                        JigsawMapMarker.of(pos.subtract(clipboard.getOrigin()), baseBlock, blockData)
-                                .ifPresent(jigsawMapMarker -> mapMarksersBuilder.put(jigsawMapMarker.pointName(), jigsawMapMarker));
-                    }
+    private MapMarkerSet getMarkerSet(@NotNull String schematicId, @NotNull SchematicClipboardCache.LoadedSchematic loadedSchematic) {
+        HashCode hashCode = loadedSchematic.schemHash();
+
+        // 変換済みファイルから読み込んだ場合は、変換時に求めたマーカーを使用する
+        if (loadedSchematic.compiledMarkerSet() != null) {
+            MapMarkerSet compiledMarkerSet = loadedSchematic.compiledMarkerSet();
+            this.mapMarkerCache.put(hashCode, compiledMarkerSet);
+            return compiledMarkerSet;
+        }
+
+        try {
+            return this.mapMarkerCache.get(hashCode, () -> this.mapMarkerIndex.load(schematicId, hashCode)
+                    .orElseGet(() -> {
+                        MapMarkerSet computedMarkerSet = computeMarkerSet(loadedSchematic);
+                        this.mapMarkerIndex.save(schematicId, hashCode, computedMarkerSet);
+                        return computedMarkerSet;
+                    }));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * スケマティックから読み込んだ場合は、次回から変換済みファイルを使用できるように、IO用スレッドで変換して保存する
+     *
+     * @param schematicId     スケマティックのID
+     * @param loadedSchematic 読み込まれたスケマティック
+     * @param markerSet       マーカーの集まり
+     */
+    private void compileSchematic(@NotNull String schematicId, @NotNull SchematicClipboardCache.LoadedSchematic loadedSchematic, @NotNull MapMarkerSet markerSet) {
+        if (!SLConfig.isCompiledSchematicEnabled() || loadedSchematic.isCompiled()) {
+            return;
+        }
+
+        File schemFile = getSchematicFile(schematicId);
+
+        // 同じスケマティックを同時に変換しないようにする
+        if (!this.compilingSchematics.add(schematicId)) {
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                if (CompiledSchematicFormat.isUpToDate(schemFile)) {
+                    return;
                 }
+
+                long startTime = System.nanoTime();
+                CompiledSchematicFormat.write(schemFile, loadedSchematic.clipboard(), loadedSchematic.schemHash(), markerSet);
+                SLUtils.getLogger().info(String.format("スケマティック(%s)を変換しました: %.1fms, %dバイト -> %dバイト", schematicId,
+                        (System.nanoTime() - startTime) / 1_000_000d, schemFile.length(), CompiledSchematicFormat.getCompiledFile(schemFile).length()));
+            } catch (IOException | RuntimeException e) {
+                SLUtils.reportError(e, MsgHandler.getFormatted("system-schematic-compile-failed", schematicId));
+            } finally {
+                this.compilingSchematics.remove(schematicId);
+            }
+        }, this.executors.getIoExecutor());
+    }
+
+    /**
+     * 変換済みファイルが存在しない、もしくは古いスケマティックを読み込み、変換する
+     *
+     * @param matchMaps 対象のマップ
+     * @return 変換を開始したスケマティック数
+     */
+    public int compileSchematics(@NotNull Collection<MatchMap> matchMaps) {
+        if (!SLConfig.isCompiledSchematicEnabled()) {
+            return 0;
+        }
+
+        Set<String> schematicIds = new HashSet<>();
+        matchMaps.forEach(matchMap -> schematicIds.add(matchMap.schematic()));
+
+        int count = 0;
+        for (String schematicId : schematicIds) {
+            File schemFile = getSchematicFile(schematicId);
+
+            if (schemFile.isFile() && !CompiledSchematicFormat.isUpToDate(schemFile)) {
+                warmSchematic(schematicId).whenComplete((unused, throwable) -> {
+                    if (throwable != null) {
+                        SLUtils.reportError(throwable, MsgHandler.getFormatted("system-schematic-compile-failed", schematicId));
+                    }
+                });
+                count++;
             }
         }
 
-        return new MapMarkerSet(mapMarksersBuilder.build());
+        return count;
+    }
+
+    /**
+     * 読み込んだスケマティックからマーカーの集まりを取得する<br/>
+     * ブロックエンティティの位置が分かる場合はその位置のみを調べ、分からない場合は全体を走査する
+     *
+     * @param loadedSchematic 読み込まれたスケマティック
+     * @return マーカーの集まり
+     */
+    private MapMarkerSet computeMarkerSet(SchematicClipboardCache.LoadedSchematic loadedSchematic) {
+        if (loadedSchematic.blockEntityPositions() != null) {
+            return MapMarkerScanner.collect(loadedSchematic.clipboard(), loadedSchematic.blockEntityPositions());
+        }
+
+        return MapMarkerScanner.scan(this.executors.getCpuPool(), loadedSchematic.clipboard());
+    }
+
+    /**
+     * 試合用マップのスケマティックファイルを取得
+     *
+     * @param matchMap 試合用マップ
+     * @return スケマティックファイル
+     */
+    protected static File getSchematicFile(@NotNull MatchMap matchMap) {
+        return getSchematicFile(matchMap.schematic());
+    }
+
+    /**
+     * スケマティックファイルを取得
+     *
+     * @param schematicId スケマティックのID
+     * @return スケマティックファイル
+     */
+    protected static File getSchematicFile(@NotNull String schematicId) {
+        return new File(SLFiles.schematicFolder(), schematicId + ".schem");
+    }
+
+    /**
+     * 構造物を生成するオフセットを取得<br/>
+     * アリーナの区画の場合は、区画の原点を加える
+     *
+     * @param matchMapInstance マップインスタンス
+     * @return オフセット
+     */
+    private static BlockVector3 getPasteOffset(@NotNull MatchMapInstance matchMapInstance) {
+        return matchMapInstance.getMatchMap().offset().add(matchMapInstance.getSlotOffset());
+    }
+
+    /**
+     * 構造物を生成する範囲(ワールド座標)を取得
+     *
+     * @param clipboard   クリップボード
+     * @param pasteOffset 構造物を生成するオフセット
+     * @return 生成する範囲
+     */
+    private static CuboidRegion getPasteRegion(@NotNull Clipboard clipboard, @NotNull BlockVector3 pasteOffset) {
+        Region clipboardRegion = clipboard.getRegion();
+        BlockVector3 shift = pasteOffset.subtract(clipboard.getOrigin());
+        return new CuboidRegion(clipboardRegion.getMinimumPoint().add(shift), clipboardRegion.getMaximumPoint().add(shift));
     }
 
-    private CompletableFuture<World> loadWorld(@NotNull MatchMapInstance matchMapInstance) {
+    /**
+     * アリーナワールドを取得し、区画を保護する
+     *
+     * @param matchMapInstance マップインスタンス
+     * @param slot             割り当てられた区画
+     * @return アリーナワールド
+     */
+    private CompletableFuture<World> loadArenaWorld(@NotNull MatchMapInstance matchMapInstance, @NotNull MatchArenaSlot slot) {
+        return matchMapInstance.trackLoadTask(this.arenaWorld.get().thenApplyAsync(world -> {
+            /* Tick同期で区画を保護 */
+
+            assertNoDestroyedInstance(matchMapInstance);
+
+            long createStartTime = System.nanoTime();
+            matchMapInstance.setStrictWorld(world);
+            this.arenaWorld.protectSlot(world, slot);
+            matchMapInstance.getLoadTimings().record(MapLoadStage.CREATE_WORLD, System.nanoTime() - createStartTime);
+
+            SLUtils.getLogger().info(String.format("試合用マップインスタンス(%s)にアリーナの区画(%d)を割り当て", matchMapInstance.getId(), slot.getIndex()));
+            return world;
+        }, this.tickExecutor));
+    }
+
+    private CompletableFuture<World> loadWorld(@NotNull MatchMapInstance matchMapInstance, @Nullable MatchMapBaker.BakedMap bakedMap) {
         String worldId = matchMapInstance.getId();
         String worldName = WORLD_NAME_PREFIX + worldId;
 
-        return this.worldCache.get().thenApplyAsync(worldCacheFile -> {
-            /* 非同期でキャッシュワールドファイルをコピー */
+        // 事前生成済みマップが無ければ、空のテンプレートワールドをコピーする
+        CompletableFuture<File> worldTemplateCompletableFuture = bakedMap != null ? CompletableFuture.completedFuture(bakedMap.worldFolder()) : this.worldTemplate.get();
+
+        CompletableFuture<File> worldFolderCompletableFuture = matchMapInstance.trackLoadTask(worldTemplateCompletableFuture.thenApplyAsync(worldTemplateFile -> {
+            /* IO用スレッドでテンプレートワールドファイルをコピー */
 
             assertNoDestroyedInstance(matchMapInstance);
 
             File worldFolder = new File(worldName);
 
-            synchronized (matchMapInstance.getWorldFileLock()) {
+            Lock worldFileLock = matchMapInstance.getWorldFileLock();
+            worldFileLock.lock();
+            try {
                 assertNoDestroyedInstance(matchMapInstance);
 
                 // 被り確認
@@ -380,15 +804,27 @@ public class MatchMapInstanceLoader {
                 }
 
                 // フォルダーのコピー
-                try {
-                    FileUtils.copyDirectoryStructure(worldCacheFile, worldFolder);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                // 破棄された際にコピーを中断できるように、割り込み可能な状態で行う
+                matchMapInstance.runInterruptibly(() -> matchMapInstance.getLoadTimings().time(MapLoadStage.WORLD_COPY, () -> {
+                    try {
+                        if (bakedMap != null) {
+                            this.mapBaker.copyBakedWorld(bakedMap, worldFolder);
+                        } else {
+                            this.worldFolderCloner.clone(worldTemplateFile, worldFolder);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return null;
+                }));
+            } finally {
+                worldFileLock.unlock();
             }
 
             return worldFolder;
-        }, asyncExecutor).thenApplyAsync(worldFolder -> {
+        }, this.executors.getIoExecutor()));
+
+        return matchMapInstance.trackLoadTask(worldFolderCompletableFuture.thenApplyAsync(worldFolder -> {
             /* Tick同期でワールドを生成 */
 
             assertNoDestroyedInstance(matchMapInstance);
@@ -404,6 +840,7 @@ public class MatchMapInstanceLoader {
             }
 
             // ワールド生成
+            long createStartTime = System.nanoTime();
             WorldCreator worldCreator = matchWorldCreator(worldName, worldId);
             World world = worldCreator.createWorld();
 
@@ -414,10 +851,11 @@ public class MatchMapInstanceLoader {
             matchMapInstance.setStrictWorld(world);
 
             worldSetting(world);
+            matchMapInstance.getLoadTimings().record(MapLoadStage.CREATE_WORLD, System.nanoTime() - createStartTime);
 
             SLUtils.getLogger().info(String.format("試合用マップインスタンス(%s)のワールド生成完了", worldId));
             return world;
-        }, tickExecutor);
+        }, tickExecutor));
     }
 
     /**
@@ -426,6 +864,16 @@ public class MatchMapInstanceLoader {
      * @param world ワールド
      */
     private void worldSetting(World world) {
+        applyGameRules(world);
+        protectWorld(world);
+    }
+
+    /**
+     * ワールドの設定とゲームルールを適用
+     *
+     * @param world ワールド
+     */
+    protected void applyGameRules(World world) {
         world.setAutoSave(false);
         world.setDifficulty(Difficulty.NORMAL);
 
@@ -442,8 +890,6 @@ public class MatchMapInstanceLoader {
         world.setGameRule(GameRule.KEEP_INVENTORY, true);
         world.setGameRule(GameRule.DO_IMMEDIATE_RESPAWN, true);
         world.setGameRule(GameRule.REDUCED_DEBUG_INFO, true);
-
-        protectWorld(world);
     }
 
     /**
@@ -489,7 +935,7 @@ public class MatchMapInstanceLoader {
      *
      * @param region リージョン
      */
-    private void setWorldGuardRegionFlag(ProtectedRegion region) {
+    protected static void setWorldGuardRegionFlag(ProtectedRegion region) {
         region.setFlag(Flags.PVP, StateFlag.State.ALLOW);
         region.setFlag(Flags.BLOCK_BREAK, StateFlag.State.DENY);
         region.setFlag(Flags.BLOCK_PLACE, StateFlag.State.DENY);
@@ -502,58 +948,13 @@ public class MatchMapInstanceLoader {
     }
 
     /**
-     * ワールドのキャッシュ非同期生成CompletableFuture
+     * 試合用ワールドのWorldCreatorを作成
      *
-     * @return キャッシュファイルのCompletableFuture
+     * @param worldName ワールド名
+     * @param worldId   ワールドID
+     * @return WorldCreator
      */
-    private CompletableFuture<File> createWorldCache() {
-        return CompletableFuture.supplyAsync(() -> {
-            /* Tick同期でキャッシュ用ワールドのフォルダーを生成 */
-
-            // 注意喚起
-            Bukkit.broadcast(WORLD_CACHE_ATTENTION_MESSAGE);
-
-            // ワールドのTick処理中確認
-            if (Bukkit.isTickingWorlds()) {
-                throw new RuntimeException("ワールドのTick処理中です");
-            }
-
-            // ワールドを生成
-            String worldId = "cache_" + UUID.randomUUID();
-            String worldName = WORLD_NAME_PREFIX + worldId;
-            WorldCreator worldCreator = matchWorldCreator(worldName, worldId);
-            World world = Objects.requireNonNull(worldCreator.createWorld());
-
-            // ワールドのフォルダーを取得して、ワールドをアンロード
-            File worldFolder = world.getWorldFolder();
-            Bukkit.unloadWorld(world, true);
-
-            // uid.datを削除
-            File uidFile = new File(worldFolder, "uid.dat");
-            if (!uidFile.delete()) {
-                throw new RuntimeException("uid.datの削除に失敗");
-            }
-
-            SLUtils.getLogger().info("ワールドデータのキャッシュ生成完了");
-
-            return worldFolder;
-        }, tickExecutor).thenApplyAsync(worldFolder -> {
-            /* 非同期でワールドフォルダーを一時ファイル用フォルダーへ移動 */
-
-            FNDataUtil.wishMkdir(SLFiles.tmpFolder());
-            File tmpWorldFolder = new File(SLFiles.tmpFolder(), worldFolder.getName());
-
-            try {
-                FileUtils.rename(worldFolder, tmpWorldFolder);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-
-            return tmpWorldFolder;
-        }, asyncExecutor);
-    }
-
-    private WorldCreator matchWorldCreator(String worldName, String worldId) {
+    protected WorldCreator matchWorldCreator(String worldName, String worldId) {
         WorldCreator worldCreator = new WorldCreator(worldName, SLUtils.plLoc(worldId));
         worldCreator.generator(new MatchChunkGenerator());
         worldCreator.environment(World.Environment.NORMAL);
@@ -571,4 +972,15 @@ public class MatchMapInstanceLoader {
             throw new RuntimeException("試合マップインスタンスが破棄されています");
         }
     }
+
+    /**
+     * 生成準備済みのスケマティック
+     *
+     * @param clipboard   スケマティックのクリップボードのビュー
+     * @param markerSet   マーカーの集まり
+     * @param pasteSlices クリップボード座標での生成範囲のリスト(生成順)
+     * @author MORIMORI0317
+     */
+    private record PreparedSchematic(@NotNull ClipboardView clipboard, @NotNull MapMarkerSet markerSet, @NotNull List<Region> pasteSlices) {
+    }
 }
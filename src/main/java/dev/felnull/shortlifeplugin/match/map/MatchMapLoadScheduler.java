@@ -0,0 +1,159 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.shortlifeplugin.SLConfig;
+import dev.felnull.shortlifeplugin.match.MatchMode;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 試合用マップの読み込みを優先度順に開始するスケジューラー<br/>
+ * 同時に読み込むマップインスタンス数を制限し、空きができた際に最も優先度の高い読み込みを開始する<br/>
+ * 優先度はマップインスタンスから毎Tick取得するため、待機中に試合の状況が変わっても反映される<br/>
+ * このクラスはスレッドセーフではないので、サーバーTickからアクセスしてください。
+ *
+ * @author MORIMORI0317
+ */
+public class MatchMapLoadScheduler {
+
+    /**
+     * 試合に割り当てられていない読み込み(プールの補充など)の優先度
+     */
+    public static final double BACKGROUND_PRIORITY = 0d;
+
+    /**
+     * マップのインスタンスのローダー
+     */
+    @NotNull
+    private final MatchMapInstanceLoader mapInstanceLoader;
+
+    /**
+     * 開始待ちの読み込み(登録順)
+     */
+    private final List<LoadRequest> pendingRequests = new ArrayList<>();
+
+    /**
+     * 読み込み中の数<br/>
+     * 読み込みの失敗は非同期スレッドで通知される場合があるため、スレッドセーフにする
+     */
+    private final AtomicInteger runningCount = new AtomicInteger();
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapInstanceLoader マップのインスタンスのローダー
+     */
+    protected MatchMapLoadScheduler(@NotNull MatchMapInstanceLoader mapInstanceLoader) {
+        this.mapInstanceLoader = mapInstanceLoader;
+    }
+
+    /**
+     * マップインスタンスの読み込みを登録する<br/>
+     * マップインスタンスには、読み込みが開始されるまで待機するマップワールドが設定される
+     *
+     * @param matchMode        試合モード
+     * @param matchMapInstance マップインスタンス(ワールドは空)
+     */
+    protected void submit(@NotNull MatchMode matchMode, @NotNull MatchMapInstance matchMapInstance) {
+        LoadRequest request = new LoadRequest(matchMode, matchMapInstance, new CompletableFuture<>());
+        matchMapInstance.setMapWorld(request.mapWorld());
+        this.pendingRequests.add(request);
+
+        // 空きがあれば、次のTickを待たずに開始
+        startPending();
+    }
+
+    /**
+     * Tick処理
+     */
+    protected void tick() {
+        startPending();
+    }
+
+    /**
+     * 開始待ちの読み込みの数を取得
+     *
+     * @return 開始待ちの数
+     */
+    public int getPendingCount() {
+        return this.pendingRequests.size();
+    }
+
+    /**
+     * 読み込み中の数を取得
+     *
+     * @return 読み込み中の数
+     */
+    public int getRunningCount() {
+        return this.runningCount.get();
+    }
+
+    /**
+     * 空きがある分だけ、優先度の高い順に読み込みを開始する
+     */
+    private void startPending() {
+        // 破棄済みのマップインスタンスを取り除く
+        this.pendingRequests.removeIf(request -> request.mapWorld().isDone() || request.instance().isDestroyed());
+
+        int maxConcurrentLoads = SLConfig.getMapLoadMaxConcurrent();
+
+        while (this.runningCount.get() < maxConcurrentLoads && !this.pendingRequests.isEmpty()) {
+            start(pollHighestPriority());
+        }
+    }
+
+    /**
+     * 最も優先度の高い読み込みを取り出す<br/>
+     * 優先度が同じ場合は、先に登録された読み込みを優先する
+     *
+     * @return 読み込み
+     */
+    private LoadRequest pollHighestPriority() {
+        Iterator<LoadRequest> iterator = this.pendingRequests.iterator();
+        LoadRequest highest = iterator.next();
+        double highestPriority = highest.instance().getLoadPriority();
+
+        while (iterator.hasNext()) {
+            LoadRequest request = iterator.next();
+            double priority = request.instance().getLoadPriority();
+
+            if (priority > highestPriority) {
+                highest = request;
+                highestPriority = priority;
+            }
+        }
+
+        this.pendingRequests.remove(highest);
+        return highest;
+    }
+
+    private void start(LoadRequest request) {
+        this.runningCount.incrementAndGet();
+
+        this.mapInstanceLoader.load(request.matchMode(), request.instance()).whenComplete((matchMapWorld, throwable) -> {
+            this.runningCount.decrementAndGet();
+
+            if (throwable == null) {
+                request.mapWorld().complete(matchMapWorld);
+            } else {
+                request.mapWorld().completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+            }
+        });
+    }
+
+    /**
+     * 開始待ちの読み込み
+     *
+     * @param matchMode 試合モード
+     * @param instance  マップインスタンス
+     * @param mapWorld  マップインスタンスに設定したマップワールド
+     * @author MORIMORI0317
+     */
+    private record LoadRequest(@NotNull MatchMode matchMode, @NotNull MatchMapInstance instance, @NotNull CompletableFuture<MatchMapWorld> mapWorld) {
+    }
+}
@@ -0,0 +1,327 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.fnjl.util.FNDataUtil;
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.utils.SLFiles;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 試合用マップの再読み込み<br/>
+ * マップフォルダーとスケマティックフォルダーを監視し、変更されたファイルのみを読み込み直す<br/>
+ * 読み込んだマップはサーバーTickで一括して差し替えるため、読み込み中や試合中のマップインスタンスには影響しない
+ *
+ * @author MORIMORI0317
+ */
+public class MatchMapReloader {
+
+    /**
+     * 最後の変更から再読み込みを開始するまでの待機時間 (ms)<br/>
+     * ファイルの書き込み中に読み込まないように、変更が落ち着くまで待機する
+     */
+    private static final long DEBOUNCE_TIME = 500;
+
+    /**
+     * スケマティックファイルの拡張子
+     */
+    private static final String SCHEMATIC_EXTENSION = ".schem";
+
+    /**
+     * 試合用マップの管理クラス
+     */
+    @NotNull
+    private final MatchMapHandler mapHandler;
+
+    /**
+     * マップのフォルダ管理クラス
+     */
+    @NotNull
+    private final MatchMapFolderHandler mapFolderHandler;
+
+    /**
+     * マップのインスタンスのローダー
+     */
+    @NotNull
+    private final MatchMapInstanceLoader mapInstanceLoader;
+
+    /**
+     * 監視キーと監視中のフォルダー
+     */
+    private final Map<WatchKey, Path> watchFolders = new ConcurrentHashMap<>();
+
+    /**
+     * ファイルの監視
+     */
+    @Nullable
+    private WatchService watchService;
+
+    /**
+     * 監視スレッド
+     */
+    @Nullable
+    private Thread watchThread;
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapHandler        試合用マップの管理クラス
+     * @param mapFolderHandler  マップのフォルダ管理クラス
+     * @param mapInstanceLoader マップのインスタンスのローダー
+     */
+    protected MatchMapReloader(@NotNull MatchMapHandler mapHandler, @NotNull MatchMapFolderHandler mapFolderHandler, @NotNull MatchMapInstanceLoader mapInstanceLoader) {
+        this.mapHandler = mapHandler;
+        this.mapFolderHandler = mapFolderHandler;
+        this.mapInstanceLoader = mapInstanceLoader;
+    }
+
+    /**
+     * 監視を開始する
+     */
+    public void start() {
+        if (this.watchThread != null) {
+            return;
+        }
+
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+
+            File mapFolder = SLFiles.mapFolder();
+            File schematicFolder = SLFiles.schematicFolder();
+            FNDataUtil.wishMkdir(mapFolder);
+            FNDataUtil.wishMkdir(schematicFolder);
+
+            registerAll(mapFolder.toPath());
+            registerAll(schematicFolder.toPath());
+        } catch (IOException | RuntimeException e) {
+            SLUtils.reportError(e, MsgHandler.get("system-map-watch-failed"));
+            stop();
+            return;
+        }
+
+        this.watchThread = new Thread(this::watchLoop, "map-file-watcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    /**
+     * 監視を停止する
+     */
+    public void stop() {
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException e) {
+                SLUtils.getLogger().warning(String.format("マップファイルの監視の停止に失敗: %s", e));
+            }
+        }
+
+        if (this.watchThread != null) {
+            try {
+                this.watchThread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        this.watchService = null;
+        this.watchThread = null;
+        this.watchFolders.clear();
+    }
+
+    private void watchLoop() {
+        WatchService service = Objects.requireNonNull(this.watchService);
+
+        try {
+            while (true) {
+                ChangeSet changeSet = new ChangeSet();
+                WatchKey key = service.take();
+
+                // 変更が落ち着くまで、まとめて収集する
+                while (key != null) {
+                    pollEvents(key, changeSet);
+                    key = service.poll(DEBOUNCE_TIME, TimeUnit.MILLISECONDS);
+                }
+
+                reload(changeSet);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // 停止
+        }
+    }
+
+    /**
+     * 監視キーのイベントを変更内容へ追加する
+     *
+     * @param key       監視キー
+     * @param changeSet 変更内容
+     */
+    private void pollEvents(@NotNull WatchKey key, @NotNull ChangeSet changeSet) {
+        Path folder = this.watchFolders.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || folder == null) {
+                changeSet.fullReload = true;
+                continue;
+            }
+
+            Path path = folder.resolve((Path) event.context());
+            File file = path.toFile();
+            boolean mapFolderFile = path.toAbsolutePath().startsWith(SLFiles.mapFolder().toPath().toAbsolutePath());
+
+            // 新しく作成されたフォルダーも監視する
+            if (event.kind() == ENTRY_CREATE && file.isDirectory()) {
+                try {
+                    registerAll(path);
+                } catch (IOException e) {
+                    SLUtils.getLogger().warning(String.format("フォルダーの監視に失敗: %s", e));
+                }
+
+                // フォルダーごと追加された場合、中のファイルのイベントは届かないため全て読み込み直す
+                changeSet.fullReload |= mapFolderFile;
+                continue;
+            }
+
+            if (mapFolderFile) {
+                if (MatchMapFolderHandler.isMapFile(file)) {
+                    changeSet.mapFiles.add(file);
+                } else if (event.kind() == ENTRY_DELETE) {
+                    // フォルダーが削除された可能性があるため全て読み込み直す
+                    changeSet.fullReload = true;
+                }
+            } else if (file.getName().endsWith(SCHEMATIC_EXTENSION)) {
+                String schematicPath = SLUtils.getIdFromPath(file, SLFiles.schematicFolder());
+                changeSet.schematicIds.add(schematicPath.substring(0, schematicPath.length() - SCHEMATIC_EXTENSION.length()));
+            }
+        }
+
+        if (!key.reset()) {
+            this.watchFolders.remove(key);
+        }
+    }
+
+    /**
+     * 変更されたマップファイルを読み込み、Tick同期でマップを差し替える
+     *
+     * @param changeSet 変更内容
+     */
+    private void reload(@NotNull ChangeSet changeSet) {
+        Map<String, MatchMap> updatedMaps = new HashMap<>();
+        Set<String> removedMapIds = new HashSet<>();
+        Map<String, MatchMap> allMaps = null;
+
+        if (changeSet.fullReload) {
+            try {
+                allMaps = this.mapFolderHandler.loadMap();
+            } catch (IOException e) {
+                SLUtils.reportError(e, MsgHandler.get("system-all-map-load-failed"));
+                return;
+            }
+        } else {
+            for (File file : changeSet.mapFiles) {
+                if (file.isFile()) {
+                    this.mapFolderHandler.loadMapFile(file).ifPresent(matchMap -> updatedMaps.put(matchMap.id(), matchMap));
+                } else {
+                    removedMapIds.add(this.mapFolderHandler.getMapId(file));
+                }
+            }
+        }
+
+        if (allMaps == null && updatedMaps.isEmpty() && removedMapIds.isEmpty() && changeSet.schematicIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, MatchMap> reloadedMaps = allMaps;
+
+        Bukkit.getScheduler().runTask(SLUtils.getSLPlugin(), () -> {
+            Map<String, MatchMap> previousMaps = this.mapHandler.getAllMap();
+
+            if (reloadedMaps != null) {
+                this.mapHandler.replaceMaps(reloadedMaps);
+            } else if (!updatedMaps.isEmpty() || !removedMapIds.isEmpty()) {
+                this.mapHandler.updateMaps(updatedMaps, removedMapIds);
+            }
+
+            SLUtils.getLogger().info(MsgHandler.getFormatted("system-map-reloaded", this.mapHandler.getAllMap().size()));
+
+            // マップが変わらずスケマティックのみ更新された場合も、古い構造物のプール内のインスタンスを破棄する
+            Set<String> evictMapIds = new HashSet<>();
+            Stream.concat(previousMaps.values().stream(), this.mapHandler.getAllMap().values().stream())
+                    .filter(matchMap -> changeSet.schematicIds.contains(matchMap.schematic()))
+                    .forEach(matchMap -> evictMapIds.add(matchMap.id()));
+
+            if (!evictMapIds.isEmpty()) {
+                int evictedCount = this.mapHandler.evictPooledMaps(evictMapIds);
+                SLUtils.getLogger().info(String.format("スケマティックが更新されたマップのプール内のインスタンスを破棄: %d個", evictedCount));
+            }
+
+            // 変更されたスケマティックと、追加もしくは変更されたマップのスケマティックのマーカーを用意する
+            Set<String> warmSchematicIds = new HashSet<>();
+            this.mapHandler.getAllMap().values().forEach(matchMap -> {
+                if (changeSet.schematicIds.contains(matchMap.schematic()) || !matchMap.equals(previousMaps.get(matchMap.id()))) {
+                    warmSchematicIds.add(matchMap.schematic());
+                }
+            });
+
+            warmSchematicIds.forEach(schematicId -> this.mapInstanceLoader.warmSchematic(schematicId).whenComplete((unused, throwable) -> {
+                if (throwable != null) {
+                    SLUtils.reportError(throwable, MsgHandler.getFormatted("system-schematic-warm-failed", schematicId));
+                }
+            }));
+        });
+    }
+
+    /**
+     * フォルダーとその中の全てのフォルダーを監視する
+     *
+     * @param root フォルダー
+     * @throws IOException 登録失敗
+     */
+    private void registerAll(@NotNull Path root) throws IOException {
+        WatchService service = Objects.requireNonNull(this.watchService);
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                MatchMapReloader.this.watchFolders.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * まとめて収集した変更内容
+     *
+     * @author MORIMORI0317
+     */
+    private static class ChangeSet {
+
+        /**
+         * 変更されたマップファイル
+         */
+        private final Set<File> mapFiles = new HashSet<>();
+
+        /**
+         * 変更されたスケマティックのID
+         */
+        private final Set<String> schematicIds = new HashSet<>();
+
+        /**
+         * 全てのマップを読み込み直すかどうか
+         */
+        private boolean fullReload;
+    }
+}
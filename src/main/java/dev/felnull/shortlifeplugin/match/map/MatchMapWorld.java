@@ -1,5 +1,6 @@
 package dev.felnull.shortlifeplugin.match.map;
 
+import com.google.common.collect.ImmutableMap;
 import com.sk89q.worldedit.math.BlockVector3;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
@@ -38,23 +39,47 @@ public class MatchMapWorld {
     @NotNull
     private final MapMarkerSet markerSet;
 
+    /**
+     * アリーナの区画の原点<br/>
+     * 専用のワールドの場合は原点(0, 0, 0)
+     */
+    @NotNull
+    private final BlockVector3 slotOffset;
+
+    /**
+     * 地点名とスポーン地点の表<br/>
+     * 作成時に一度だけ求めておく
+     */
+    @NotNull
+    private final Map<NamespacedKey, MapSpawnTable> spawnTables;
+
     /**
      * コンストラクタ
      *
-     * @param matchMap  試合用マップ
-     * @param world     ワールド
-     * @param markerSet マーカーの集まり
+     * @param matchMap   試合用マップ
+     * @param world      ワールド
+     * @param markerSet  マーカーの集まり
+     * @param slotOffset アリーナの区画の原点
      */
-    protected MatchMapWorld(@NotNull MatchMap matchMap, @NotNull World world, @NotNull MapMarkerSet markerSet) {
+    protected MatchMapWorld(@NotNull MatchMap matchMap, @NotNull World world, @NotNull MapMarkerSet markerSet, @NotNull BlockVector3 slotOffset) {
         this.matchMap = matchMap;
         this.world = world;
         this.markerSet = markerSet;
+        this.slotOffset = slotOffset;
+
+        ImmutableMap.Builder<NamespacedKey, MapSpawnTable> spawnTablesBuilder = ImmutableMap.builder();
+        markerSet.makers().asMap().forEach((pointName, markers) -> spawnTablesBuilder.put(pointName, new MapSpawnTable(this, markers)));
+        this.spawnTables = spawnTablesBuilder.build();
     }
 
     public @NotNull World getWorld() {
         return world;
     }
 
+    public @NotNull MapMarkerSet getMarkerSet() {
+        return markerSet;
+    }
+
     /**
      * ポイント名からマーカのコレクションを取得
      *
@@ -67,6 +92,16 @@ public class MatchMapWorld {
         return markerSet.makers().get(pointName);
     }
 
+    /**
+     * 指定されたポイント名のスポーン地点の表を取得
+     *
+     * @param pointName ポイント名
+     * @return スポーン地点の表、マーカーが存在しない場合は空
+     */
+    public Optional<MapSpawnTable> getSpawnTable(NamespacedKey pointName) {
+        return Optional.ofNullable(this.spawnTables.get(pointName));
+    }
+
     /**
      * 指定されたポイント名のマーカーコレクションからランダムで一つ選び返す
      *
@@ -74,28 +109,22 @@ public class MatchMapWorld {
      * @return マーカー
      */
     public Optional<MapMarker> getMakerRandom(NamespacedKey pointName) {
-        Collection<MapMarker> markers = getMarker(pointName);
+        MapSpawnTable spawnTable = this.spawnTables.get(pointName);
 
-        if (markers.isEmpty()) {
+        if (spawnTable == null) {
             return Optional.empty();
         }
 
-        List<MapMarker> markersList = new ArrayList<>(markers);
-
-        if (markersList.size() == 1) {
-            return Optional.of(markersList.get(0));
-        }
-
-        return Optional.of(markersList.get(RANDOM.nextInt(markersList.size())));
+        return Optional.of(spawnTable.getMarker(spawnTable.pickIndex(RANDOM)));
     }
 
     /**
-     * マップのオフセットを考慮した座標を取得
+     * マップのオフセットとアリーナの区画の原点を考慮した座標を取得
      *
      * @param position 座標
      * @return 補正済み座標
      */
     public BlockVector3 offsetCorrection(BlockVector3 position) {
-        return position.add(matchMap.offset());
+        return position.add(matchMap.offset()).add(slotOffset);
     }
 }
@@ -0,0 +1,423 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.shortlifeplugin.SLConfig;
+import dev.felnull.shortlifeplugin.match.MatchMode;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * 読み込み済みの試合用マップワールドを事前に用意しておくプール<br/>
+ * 試合モードごとの直近の需要から、マップごとに保持する数を決める<br/>
+ * このクラスはスレッドセーフではないので、サーバーTickからアクセスしてください。
+ *
+ * @author MORIMORI0317
+ */
+public class MatchMapWorldPool {
+
+    /**
+     * 需要として数える期間 (ms)
+     */
+    private static final long DEMAND_WINDOW_TIME = 1000 * 60 * 10;
+
+    /**
+     * 読み込みに失敗したマップを再度補充するまでの待機時間 (ms)
+     */
+    private static final long FAILED_RETRY_WAIT_TIME = 1000 * 60 * 5;
+
+    /**
+     * 補充を確認する周期Tick
+     */
+    private static final int REFILL_CHECK_INTERVAL_TICK = 20;
+
+    /**
+     * 補充を行っても問題ないとみなす平均Tick時間 (ms)
+     */
+    private static final double QUIET_AVERAGE_TICK_TIME = 40d;
+
+    /**
+     * プールのインスタンスIDの接頭辞
+     */
+    private static final String POOL_INSTANCE_ID_PREFIX = "pool_";
+
+    /**
+     * マップと準備済みのプールエントリーのマップ
+     */
+    private final Map<MatchMap, Deque<PoolEntry>> pooled = new HashMap<>();
+
+    /**
+     * 試合モードと要求された時刻(ms)のリストのマップ
+     */
+    private final Map<MatchMode, Deque<Long>> demandHistory = new HashMap<>();
+
+    /**
+     * マップと読み込みに失敗した時刻(ms)のマップ
+     */
+    private final Map<MatchMap, Long> failedTimes = new HashMap<>();
+
+    /**
+     * 試合用マップの管理クラス
+     */
+    @NotNull
+    private final MatchMapHandler mapHandler;
+
+    /**
+     * マップのインスタンスのローダー
+     */
+    @NotNull
+    private final MatchMapInstanceLoader mapInstanceLoader;
+
+    /**
+     * 補充中のエントリー<br/>
+     * 補充していない場合はnull
+     */
+    @Nullable
+    private PoolEntry fillingEntry;
+
+    /**
+     * 補充確認までの残りTick
+     */
+    private int refillCheckRemainingTick;
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapHandler        試合用マップの管理クラス
+     * @param mapInstanceLoader マップのインスタンスのローダー
+     */
+    protected MatchMapWorldPool(@NotNull MatchMapHandler mapHandler, @NotNull MatchMapInstanceLoader mapInstanceLoader) {
+        this.mapHandler = mapHandler;
+        this.mapInstanceLoader = mapInstanceLoader;
+    }
+
+    /**
+     * Tick処理
+     */
+    protected void tick() {
+        updateFillingEntry();
+
+        if (this.refillCheckRemainingTick > 0) {
+            this.refillCheckRemainingTick--;
+            return;
+        }
+        this.refillCheckRemainingTick = REFILL_CHECK_INTERVAL_TICK;
+
+        long now = System.currentTimeMillis();
+        trimDemandHistory(now);
+        trimPooled();
+
+        if (this.fillingEntry == null && isQuiet()) {
+            startFill(now);
+        }
+    }
+
+    /**
+     * 試合モードの需要を記録
+     *
+     * @param matchMode 試合モード
+     */
+    protected void recordDemand(@NotNull MatchMode matchMode) {
+        this.demandHistory.computeIfAbsent(matchMode, mode -> new ArrayDeque<>()).addLast(System.currentTimeMillis());
+    }
+
+    /**
+     * 指定したマップの準備済みインスタンスを取り出す<br/>
+     * 読み込み中のインスタンスも、同じ試合モードで検証されるものであれば取り出す
+     *
+     * @param matchMode 試合モード
+     * @param matchMap  試合用マップ
+     * @return オプショナルなマップインスタンス
+     */
+    protected Optional<MatchMapInstance> take(@NotNull MatchMode matchMode, @NotNull MatchMap matchMap) {
+        Deque<PoolEntry> entries = this.pooled.get(matchMap);
+
+        while (entries != null && !entries.isEmpty()) {
+            PoolEntry entry = entries.pollFirst();
+            Optional<MatchMapWorld> mapWorld = entry.instance().getMapWorld();
+
+            if (mapWorld.isEmpty()) {
+                entry.instance().dispose();
+                continue;
+            }
+
+            // 補充時とは別の試合モードの可能性があるため、改めて検証
+            try {
+                matchMode.mapValidator().validate(mapWorld.get());
+            } catch (RuntimeException e) {
+                entries.addLast(entry);
+                break;
+            }
+
+            return Optional.of(entry.instance());
+        }
+
+        PoolEntry filling = this.fillingEntry;
+        if (filling != null && filling.instance().getMatchMap().equals(matchMap) && filling.matchMode() == matchMode) {
+            this.fillingEntry = null;
+            return Optional.of(filling.instance());
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * 試合で使用されなかったマップインスタンスをプールへ戻す<br/>
+     * 準備済みであれば準備済みのインスタンスとして、読み込み中で補充中のエントリーが無ければ補充中のエントリーとして引き取る<br/>
+     * 引き取れない場合は破棄する
+     *
+     * @param instance  マップインスタンス
+     * @param matchMode 読み込み時に検証した試合モード
+     */
+    protected void offer(@NotNull MatchMapInstance instance, @NotNull MatchMode matchMode) {
+        instance.setLoadPriority(() -> MatchMapLoadScheduler.BACKGROUND_PRIORITY);
+
+        if (!SLConfig.isMapPoolEnabled() || instance.isDestroyed() || instance.isLoadFailed()) {
+            instance.dispose();
+            return;
+        }
+
+        PoolEntry entry = new PoolEntry(instance, matchMode);
+
+        // 目標数を超えた分は、次の確認時に破棄される
+        if (instance.isReady()) {
+            this.pooled.computeIfAbsent(instance.getMatchMap(), map -> new ArrayDeque<>()).addLast(entry);
+        } else if (this.fillingEntry == null) {
+            this.fillingEntry = entry;
+        } else {
+            instance.dispose();
+        }
+    }
+
+    /**
+     * 指定したマップの準備済みインスタンスと補充中のエントリーを破棄する<br/>
+     * マップの内容(レコード)が変わらずにスケマティックのみが更新された場合、古い構造物のインスタンスを使用しないようにするため
+     *
+     * @param mapIds マップID
+     * @return 破棄したインスタンス数
+     */
+    protected int evict(@NotNull Set<String> mapIds) {
+        int evictedCount = 0;
+        Iterator<Map.Entry<MatchMap, Deque<PoolEntry>>> iterator = this.pooled.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<MatchMap, Deque<PoolEntry>> entry = iterator.next();
+
+            if (mapIds.contains(entry.getKey().id())) {
+                for (PoolEntry poolEntry : entry.getValue()) {
+                    poolEntry.instance().dispose();
+                    evictedCount++;
+                }
+                iterator.remove();
+            }
+        }
+
+        PoolEntry filling = this.fillingEntry;
+        if (filling != null && mapIds.contains(filling.instance().getMatchMap().id())) {
+            this.fillingEntry = null;
+            filling.instance().dispose();
+            evictedCount++;
+        }
+
+        return evictedCount;
+    }
+
+    /**
+     * 破棄処理
+     */
+    protected void dispose() {
+        this.pooled.values().forEach(entries -> entries.forEach(entry -> entry.instance().dispose()));
+        this.pooled.clear();
+
+        if (this.fillingEntry != null) {
+            this.fillingEntry.instance().dispose();
+            this.fillingEntry = null;
+        }
+    }
+
+    /**
+     * プール内の準備済みインスタンスの総数を取得
+     *
+     * @return 準備済みインスタンス数
+     */
+    public int getPooledCount() {
+        return this.pooled.values().stream()
+                .mapToInt(Collection::size)
+                .sum();
+    }
+
+    /**
+     * 補充中のエントリーの状態を更新
+     */
+    private void updateFillingEntry() {
+        PoolEntry filling = this.fillingEntry;
+
+        if (filling == null) {
+            return;
+        }
+
+        MatchMapInstance instance = filling.instance();
+
+        if (instance.isLoadFailed()) {
+            this.fillingEntry = null;
+            this.failedTimes.put(instance.getMatchMap(), System.currentTimeMillis());
+            instance.getMapWordLoadError().ifPresent(throwable ->
+                    SLUtils.getLogger().warning(String.format("プール用マップインスタンス(%s)の読み込みに失敗: %s", instance.getId(), throwable)));
+            instance.dispose();
+        } else if (instance.isReady()) {
+            this.fillingEntry = null;
+            this.pooled.computeIfAbsent(instance.getMatchMap(), map -> new ArrayDeque<>()).addLast(filling);
+            SLUtils.getLogger().info(String.format("プール用マップインスタンス(%s)の準備完了", instance.getId()));
+        }
+    }
+
+    /**
+     * 補充を行っても問題ない状態かどうか
+     *
+     * @return 他の読み込みが無く、サーバーに余裕があればtrue
+     */
+    private boolean isQuiet() {
+        return this.mapInstanceLoader.getLoadingCount() == 0 && this.mapHandler.getLoadScheduler().getPendingCount() == 0
+                && Bukkit.getAverageTickTime() < QUIET_AVERAGE_TICK_TIME;
+    }
+
+    /**
+     * 最も不足しているマップの補充を開始
+     *
+     * @param now 現在時刻(ms)
+     */
+    private void startFill(long now) {
+        MatchMap fillMap = null;
+        int maxDeficit = 0;
+
+        for (MatchMap matchMap : this.mapHandler.getAllMap().values()) {
+            Long failedTime = this.failedTimes.get(matchMap);
+            if (failedTime != null && now - failedTime < FAILED_RETRY_WAIT_TIME) {
+                continue;
+            }
+
+            int deficit = getTargetSize(matchMap) - getPooledCount(matchMap);
+            if (deficit > maxDeficit) {
+                maxDeficit = deficit;
+                fillMap = matchMap;
+            }
+        }
+
+        if (fillMap == null) {
+            return;
+        }
+
+        MatchMode fillMode = getMostDemandedMode(fillMap);
+        if (fillMode == null) {
+            return;
+        }
+
+        String instanceId = POOL_INSTANCE_ID_PREFIX + UUID.randomUUID();
+        MatchMapInstance instance = this.mapHandler.newMapInstance(instanceId, fillMap);
+        this.mapHandler.getLoadScheduler().submit(fillMode, instance);
+        this.fillingEntry = new PoolEntry(instance, fillMode);
+    }
+
+    /**
+     * 需要が下がり、目標数を超えたインスタンスを破棄
+     */
+    private void trimPooled() {
+        Iterator<Map.Entry<MatchMap, Deque<PoolEntry>>> iterator = this.pooled.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<MatchMap, Deque<PoolEntry>> entry = iterator.next();
+            Deque<PoolEntry> entries = entry.getValue();
+            boolean existsMap = this.mapHandler.getMap(entry.getKey().id()).filter(map -> map.equals(entry.getKey())).isPresent();
+            int targetSize = existsMap ? getTargetSize(entry.getKey()) : 0;
+
+            while (entries.size() > targetSize) {
+                entries.pollFirst().instance().dispose();
+            }
+
+            if (entries.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 期間外の需要記録を削除
+     *
+     * @param now 現在時刻(ms)
+     */
+    private void trimDemandHistory(long now) {
+        this.demandHistory.values().forEach(history -> {
+            while (!history.isEmpty() && now - history.peekFirst() > DEMAND_WINDOW_TIME) {
+                history.pollFirst();
+            }
+        });
+    }
+
+    /**
+     * マップごとに保持すべきインスタンス数を取得<br/>
+     * 利用可能な試合モードの需要を、そのモードで利用可能なマップ数で割った値の合計
+     *
+     * @param matchMap 試合用マップ
+     * @return 保持すべき数
+     */
+    private int getTargetSize(@NotNull MatchMap matchMap) {
+        if (!SLConfig.isMapPoolEnabled()) {
+            return 0;
+        }
+
+        double demand = 0;
+
+        for (MatchMode matchMode : matchMap.availableMatchModes()) {
+            int modeDemand = getDemand(matchMode);
+            int availableMapCount = this.mapHandler.getAvailableMaps(matchMode).size();
+
+            if (modeDemand > 0 && availableMapCount > 0) {
+                demand += (double) modeDemand / availableMapCount;
+            }
+        }
+
+        return Math.min((int) Math.ceil(demand), SLConfig.getMapPoolMaxSizePerMap());
+    }
+
+    /**
+     * 指定したマップで最も需要がある試合モードを取得
+     *
+     * @param matchMap 試合用マップ
+     * @return 試合モード、需要が無い場合はnull
+     */
+    @Nullable
+    private MatchMode getMostDemandedMode(@NotNull MatchMap matchMap) {
+        return matchMap.availableMatchModes().stream()
+                .filter(matchMode -> getDemand(matchMode) > 0)
+                .max(Comparator.comparingInt(this::getDemand))
+                .orElse(null);
+    }
+
+    private int getDemand(@NotNull MatchMode matchMode) {
+        Deque<Long> history = this.demandHistory.get(matchMode);
+        return history == null ? 0 : history.size();
+    }
+
+    private int getPooledCount(@NotNull MatchMap matchMap) {
+        Deque<PoolEntry> entries = this.pooled.get(matchMap);
+        int count = entries == null ? 0 : entries.size();
+
+        if (this.fillingEntry != null && this.fillingEntry.instance().getMatchMap().equals(matchMap)) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * プールのエントリー
+     *
+     * @param instance  マップインスタンス
+     * @param matchMode 読み込み時に検証した試合モード
+     * @author MORIMORI0317
+     */
+    private record PoolEntry(@NotNull MatchMapInstance instance, @NotNull MatchMode matchMode) {
+    }
+}
@@ -0,0 +1,218 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.base.Suppliers;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import dev.felnull.fnjl.util.FNDataUtil;
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.utils.SLFiles;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static dev.felnull.shortlifeplugin.match.map.MatchMapHandler.WORLD_NAME_PREFIX;
+
+/**
+ * 試合用ワールドの複製元となる空のテンプレートワールド<br/>
+ * 一度生成したテンプレートは再起動後も使用し、チャンクジェネレーターかサーバーのバージョンが変わった場合のみ作り直す
+ *
+ * @author MORIMORI0317
+ */
+public class MatchWorldTemplate {
+
+    /**
+     * GSON
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 保存Jsonのバージョン
+     */
+    private static final int SAVE_JSON_VERSION = 0;
+
+    /**
+     * テンプレート情報のファイル名
+     */
+    private static final String META_FILE_NAME = "template.json";
+
+    /**
+     * テンプレートフォルダー内のワールドフォルダー名
+     */
+    private static final String WORLD_FOLDER_NAME = "world";
+
+    /**
+     * テンプレートワールドの生成時に送信する注意喚起メッセージ
+     */
+    private static final Component WORLD_CACHE_ATTENTION_MESSAGE = MsgHandler.getComponent("match-map-cache-attention").color(NamedTextColor.GOLD);
+
+    /**
+     * Tickに同期して処理を行うExecutor
+     */
+    private final Executor tickExecutor = Bukkit.getScheduler().getMainThreadExecutor(SLUtils.getSLPlugin());
+
+    /**
+     * マップのインスタンスのローダー
+     */
+    @NotNull
+    private final MatchMapInstanceLoader mapInstanceLoader;
+
+    /**
+     * 用意したテンプレートのワールドフォルダー<br/>
+     * 起動中に一度だけ確認、もしくは生成する
+     */
+    private final Supplier<CompletableFuture<File>> templateWorldFolder = Suppliers.memoize(this::prepare);
+
+    /**
+     * コンストラクタ
+     *
+     * @param mapInstanceLoader マップのインスタンスのローダー
+     */
+    protected MatchWorldTemplate(@NotNull MatchMapInstanceLoader mapInstanceLoader) {
+        this.mapInstanceLoader = mapInstanceLoader;
+    }
+
+    /**
+     * テンプレートのワールドフォルダーを取得<br/>
+     * 保存済みのテンプレートが使用できない場合は生成する
+     *
+     * @return テンプレートのワールドフォルダーのCompletableFuture
+     */
+    public CompletableFuture<File> get() {
+        return this.templateWorldFolder.get();
+    }
+
+    /**
+     * 保存済みのテンプレートを確認し、使用できなければ生成する
+     *
+     * @return テンプレートのワールドフォルダーのCompletableFuture
+     */
+    private CompletableFuture<File> prepare() {
+        return CompletableFuture.supplyAsync(() -> {
+            /* 非同期で保存済みのテンプレートを確認 */
+
+            File worldFolder = new File(SLFiles.worldTemplateFolder(), WORLD_FOLDER_NAME);
+            File metaFile = new File(SLFiles.worldTemplateFolder(), META_FILE_NAME);
+
+            if (!worldFolder.isDirectory() || !metaFile.isFile()) {
+                return null;
+            }
+
+            try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(metaFile), StandardCharsets.UTF_8))) {
+                JsonObject jo = GSON.fromJson(reader, JsonObject.class);
+
+                if (jo.get("_version").getAsInt() == SAVE_JSON_VERSION && createFingerprint().equals(jo.getAsJsonObject("fingerprint"))) {
+                    SLUtils.getLogger().info("保存済みのテンプレートワールドを使用");
+                    return worldFolder;
+                }
+            } catch (IOException | RuntimeException e) {
+                SLUtils.getLogger().warning(String.format("テンプレートワールドの情報を読み込めませんでした: %s", e));
+            }
+
+            SLUtils.getLogger().info("テンプレートワールドの作成時とバージョンが異なるため、作り直します");
+            return null;
+        }, this.mapInstanceLoader.getIoExecutor()).thenCompose(worldFolder -> {
+            if (worldFolder != null) {
+                return CompletableFuture.completedFuture(worldFolder);
+            }
+
+            return build();
+        });
+    }
+
+    /**
+     * テンプレートワールドを生成して保存する
+     *
+     * @return テンプレートのワールドフォルダーのCompletableFuture
+     */
+    private CompletableFuture<File> build() {
+        return CompletableFuture.supplyAsync(() -> {
+            /* Tick同期でテンプレート用ワールドのフォルダーを生成 */
+
+            // 注意喚起
+            Bukkit.broadcast(WORLD_CACHE_ATTENTION_MESSAGE);
+
+            // ワールドのTick処理中確認
+            if (Bukkit.isTickingWorlds()) {
+                throw new RuntimeException("ワールドのTick処理中です");
+            }
+
+            // ワールドを生成
+            String worldId = "template_" + UUID.randomUUID();
+            String worldName = WORLD_NAME_PREFIX + worldId;
+            WorldCreator worldCreator = this.mapInstanceLoader.matchWorldCreator(worldName, worldId);
+            World world = Objects.requireNonNull(worldCreator.createWorld());
+
+            // ワールドのフォルダーを取得して、ワールドをアンロード
+            File worldFolder = world.getWorldFolder();
+            Bukkit.unloadWorld(world, true);
+
+            // uid.datを削除
+            File uidFile = new File(worldFolder, "uid.dat");
+            if (!uidFile.delete()) {
+                throw new RuntimeException("uid.datの削除に失敗");
+            }
+
+            SLUtils.getLogger().info("テンプレートワールドの生成完了");
+
+            return worldFolder;
+        }, this.tickExecutor).thenApplyAsync(worldFolder -> {
+            /* 非同期でワールドフォルダーをテンプレートフォルダーへ移動 */
+
+            try {
+                return store(worldFolder);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, this.mapInstanceLoader.getIoExecutor());
+    }
+
+    private File store(@NotNull File worldFolder) throws IOException {
+        File templateFolder = SLFiles.worldTemplateFolder();
+        File templateWorldFolder = new File(templateFolder, WORLD_FOLDER_NAME);
+        File metaFile = new File(templateFolder, META_FILE_NAME);
+
+        FNDataUtil.wishMkdir(templateFolder);
+
+        // 情報ファイルが存在するテンプレートのみ有効とするため、情報ファイルを先に削除し最後に書き込む
+        if (metaFile.exists() && !metaFile.delete()) {
+            throw new IOException("テンプレートワールドの情報の削除に失敗");
+        }
+
+        this.mapInstanceLoader.getWorldDeletionService().deleteNow(templateWorldFolder);
+        this.mapInstanceLoader.moveWorldFolder(worldFolder, templateWorldFolder);
+
+        JsonObject jo = new JsonObject();
+        jo.addProperty("_version", SAVE_JSON_VERSION);
+        jo.add("fingerprint", createFingerprint());
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(metaFile), StandardCharsets.UTF_8))) {
+            GSON.toJson(jo, writer);
+        }
+
+        return templateWorldFolder;
+    }
+
+    /**
+     * テンプレートや事前生成済みマップの内容に影響するバージョン情報を作成
+     *
+     * @return バージョン情報のJson
+     */
+    protected static JsonObject createFingerprint() {
+        JsonObject jo = new JsonObject();
+        jo.addProperty("generator", MatchChunkGenerator.GENERATOR_VERSION);
+        jo.addProperty("server", Bukkit.getBukkitVersion());
+        return jo;
+    }
+}
@@ -0,0 +1,283 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.HashingInputStream;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NamedTag;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.io.BuiltInClipboardFormat;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
+import com.sk89q.worldedit.extent.clipboard.io.SpongeSchematicReader;
+import com.sk89q.worldedit.math.BlockVector3;
+import dev.felnull.shortlifeplugin.SLConfig;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 読み込み済みのスケマティックのクリップボードのキャッシュ<br/>
+ * ファイルのパス、更新日時、サイズをキーとし、ブロック数の合計で上限を決める<br/>
+ * 使用できる変換済みファイル({@link CompiledSchematicFormat})が存在する場合は、そちらから読み込む<br/>
+ * メモリが不足した場合はGCによって解放される
+ *
+ * @author MORIMORI0317
+ */
+public class SchematicClipboardCache {
+
+    /**
+     * スケマティックの内容のハッシュ関数
+     */
+    @NotNull
+    private final HashFunction hashFunction;
+
+    /**
+     * クリップボードのキャッシュ
+     */
+    private final Cache<SchematicFileKey, LoadedSchematic> clipboardCache = CacheBuilder.newBuilder()
+            .maximumWeight(SLConfig.getClipboardCacheMaxBlocks())
+            .weigher((SchematicFileKey key, LoadedSchematic loadedSchematic) -> loadedSchematic.weight())
+            .softValues()
+            .build();
+
+    /**
+     * コンストラクタ
+     *
+     * @param hashFunction スケマティックの内容のハッシュ関数
+     */
+    public SchematicClipboardCache(@NotNull HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * スケマティックを取得する<br/>
+     * キャッシュに存在しない、もしくはファイルが更新されている場合は読み込む<br/>
+     * 返されるクリップボードは共有されるため、変更する場合は{@link ClipboardView}を経由してください。
+     *
+     * @param schemFile スケマティックファイル
+     * @param timings   読み込んだ場合にデコードとハッシュ計算の処理時間を記録する先
+     * @return 読み込まれたスケマティック
+     * @throws IOException 読み込み失敗
+     */
+    public LoadedSchematic get(@NotNull File schemFile, @NotNull MapLoadTimings timings) throws IOException {
+        SchematicFileKey key = new SchematicFileKey(schemFile.getAbsolutePath(), schemFile.lastModified(), schemFile.length());
+
+        try {
+            return this.clipboardCache.get(key, () -> read(schemFile, timings));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * キャッシュを全て破棄
+     */
+    public void invalidateAll() {
+        this.clipboardCache.invalidateAll();
+    }
+
+    private LoadedSchematic read(@NotNull File schemFile, @NotNull MapLoadTimings timings) throws IOException {
+        long startTime = System.nanoTime();
+
+        if (SLConfig.isCompiledSchematicEnabled()) {
+            try {
+                Optional<CompiledSchematicFormat.Compiled> compiled = CompiledSchematicFormat.read(schemFile);
+
+                if (compiled.isPresent()) {
+                    // ハッシュは変換時に計算済み
+                    timings.record(MapLoadStage.HASH, 0);
+                    timings.record(MapLoadStage.DECODE, System.nanoTime() - startTime);
+                    return new LoadedSchematic(compiled.get().clipboard(), compiled.get().schemHash(), compiled.get().markerSet(), null);
+                }
+            } catch (IOException e) {
+                // 変換済みファイルが壊れている場合は、元のスケマティックから読み込む
+                SLUtils.getLogger().warning(String.format("変換済みスケマティックを使用できません: %s", e));
+            }
+
+            startTime = System.nanoTime();
+        }
+
+        ClipboardFormat format = Objects.requireNonNull(ClipboardFormats.findByFile(schemFile));
+
+        // ハッシュ計算の時間を分けるため、ハッシュ計算の内側と外側でストリームの読み込み時間を計測する
+        TimedInputStream fileInputStream = new TimedInputStream(new BufferedInputStream(new FileInputStream(schemFile)));
+        HashingInputStream hashingInputStream = new HashingInputStream(this.hashFunction, fileInputStream);
+
+        try (TimedInputStream hashedInputStream = new TimedInputStream(hashingInputStream)) {
+            LoadedSchematic loadedSchematic;
+
+            if (format == BuiltInClipboardFormat.SPONGE_SCHEMATIC) {
+                // マーカーの探索に使用するため、タグを先に読み込んでからブロックエンティティの位置を取り出す
+                NamedTag schematicTag;
+                try (NBTInputStream nbtInputStream = new NBTInputStream(new GZIPInputStream(hashedInputStream))) {
+                    schematicTag = nbtInputStream.readNamedTag();
+                }
+
+                List<BlockVector3> blockEntityPositions = schematicTag.getTag() instanceof CompoundTag compoundTag
+                        ? MapMarkerScanner.findBlockEntityPositions(compoundTag).orElse(null) : null;
+
+                try (ClipboardReader reader = new SpongeSchematicReader(new ParsedNBTInputStream(schematicTag))) {
+                    loadedSchematic = new LoadedSchematic(reader.read(), hashingInputStream.hash(), null, blockEntityPositions);
+                }
+            } else {
+                try (ClipboardReader reader = format.getReader(hashedInputStream)) {
+                    loadedSchematic = new LoadedSchematic(reader.read(), hashingInputStream.hash(), null, null);
+                }
+            }
+
+            long hashNanos = Math.max(hashedInputStream.getReadNanos() - fileInputStream.getReadNanos(), 0);
+            timings.record(MapLoadStage.HASH, hashNanos);
+            timings.record(MapLoadStage.DECODE, System.nanoTime() - startTime - hashNanos);
+
+            return loadedSchematic;
+        }
+    }
+
+    /**
+     * 読み込みに使用した時間を計測する入力ストリーム
+     *
+     * @author MORIMORI0317
+     */
+    private static class TimedInputStream extends FilterInputStream {
+
+        /**
+         * 読み込みに使用した時間 (ns)
+         */
+        private long readNanos;
+
+        /**
+         * コンストラクタ
+         *
+         * @param in 入力ストリーム
+         */
+        private TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long startTime = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                this.readNanos += System.nanoTime() - startTime;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long startTime = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                this.readNanos += System.nanoTime() - startTime;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long startTime = System.nanoTime();
+            try {
+                return super.skip(n);
+            } finally {
+                this.readNanos += System.nanoTime() - startTime;
+            }
+        }
+
+        /**
+         * 読み込みに使用した時間を取得
+         *
+         * @return 時間 (ns)
+         */
+        private long getReadNanos() {
+            return this.readNanos;
+        }
+    }
+
+    /**
+     * 読み込み済みのタグを返すNBT入力ストリーム<br/>
+     * 一度読み込んだタグを、再度ファイルを読み込まずに{@link SpongeSchematicReader}へ渡すために使用する
+     *
+     * @author MORIMORI0317
+     */
+    private static class ParsedNBTInputStream extends NBTInputStream {
+
+        /**
+         * 読み込み済みのタグ
+         */
+        @NotNull
+        private final NamedTag namedTag;
+
+        /**
+         * コンストラクタ
+         *
+         * @param namedTag 読み込み済みのタグ
+         */
+        private ParsedNBTInputStream(@NotNull NamedTag namedTag) {
+            super(InputStream.nullInputStream());
+            this.namedTag = namedTag;
+        }
+
+        @Override
+        public NamedTag readNamedTag() {
+            return this.namedTag;
+        }
+    }
+
+    /**
+     * キャッシュのキー
+     *
+     * @param path         ファイルの絶対パス
+     * @param lastModified 更新日時
+     * @param size         ファイルサイズ
+     * @author MORIMORI0317
+     */
+    private record SchematicFileKey(@NotNull String path, long lastModified, long size) {
+    }
+
+    /**
+     * 読み込まれたスケマティック
+     *
+     * @param clipboard            共有されるクリップボード
+     * @param schemHash            スケマティックの内容のハッシュ
+     * @param compiledMarkerSet    変換済みファイルから読み込んだ場合は、変換時に求めたマーカーの集まり
+     * @param blockEntityPositions マーカーの候補となるブロックエンティティの位置 (最小座標からの相対座標)、分からない場合はnull
+     * @author MORIMORI0317
+     */
+    public record LoadedSchematic(@NotNull Clipboard clipboard, @NotNull HashCode schemHash, @Nullable MapMarkerSet compiledMarkerSet,
+                                  @Nullable List<BlockVector3> blockEntityPositions) {
+
+        /**
+         * 変換済みファイルから読み込んだかどうか
+         *
+         * @return 変換済みファイルから読み込んだ場合はtrue
+         */
+        public boolean isCompiled() {
+            return this.compiledMarkerSet != null;
+        }
+
+        /**
+         * キャッシュの重み(ブロック数)を取得
+         *
+         * @return 重み
+         */
+        private int weight() {
+            return (int) Math.min(this.clipboard.getRegion().getVolume(), Integer.MAX_VALUE);
+        }
+    }
+}
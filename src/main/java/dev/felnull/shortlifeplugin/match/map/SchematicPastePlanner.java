@@ -0,0 +1,219 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * スケマティックの構造物生成を分割する範囲を決めるクラス<br/>
+ * 生成先のワールドのチャンク境界に合わせて分割し、空気のみの範囲は除外する<br/>
+ * スポーン地点のマーカーに近い範囲から順番に生成されるように並べる
+ *
+ * @author MORIMORI0317
+ */
+public final class SchematicPastePlanner {
+
+    /**
+     * チャンクのサイズ
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * 空気のみの範囲の確認を分割せずに行う範囲数
+     */
+    private static final int CHECK_BATCH_SIZE = 4;
+
+    private SchematicPastePlanner() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 構造物生成の分割範囲を作成する<br/>
+     * 空気のみの範囲の確認は、指定したプールで並列に行う
+     *
+     * @param forkJoinPool 空気のみの範囲の確認に使用するプール
+     * @param clipboard    スケマティックのクリップボードのビュー
+     * @param offset       スケマティック生成オフセット
+     * @param markerSet    マーカーの集まり
+     * @return クリップボード座標での分割範囲のリスト(生成順)
+     */
+    @NotNull
+    @Unmodifiable
+    public static List<Region> plan(@NotNull ForkJoinPool forkJoinPool, @NotNull ClipboardView clipboard, @NotNull BlockVector3 offset, @NotNull MapMarkerSet markerSet) {
+        BlockVector3 sizeMin = clipboard.getMinimumPoint();
+        BlockVector3 sizeMax = clipboard.getMaximumPoint();
+        BlockVector3 origin = clipboard.getOrigin();
+
+        // クリップボード座標からワールド座標へのずれ
+        int worldShiftX = offset.getX() - origin.getX();
+        int worldShiftZ = offset.getZ() - origin.getZ();
+
+        int minChunkX = Math.floorDiv(sizeMin.getX() + worldShiftX, CHUNK_SIZE);
+        int maxChunkX = Math.floorDiv(sizeMax.getX() + worldShiftX, CHUNK_SIZE);
+        int minChunkZ = Math.floorDiv(sizeMin.getZ() + worldShiftZ, CHUNK_SIZE);
+        int maxChunkZ = Math.floorDiv(sizeMax.getZ() + worldShiftZ, CHUNK_SIZE);
+
+        List<Region> slices = new ArrayList<>();
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                int sliceMinX = Math.max(sizeMin.getX(), chunkX * CHUNK_SIZE - worldShiftX);
+                int sliceMinZ = Math.max(sizeMin.getZ(), chunkZ * CHUNK_SIZE - worldShiftZ);
+                int sliceMaxX = Math.min(sizeMax.getX(), chunkX * CHUNK_SIZE + CHUNK_SIZE - 1 - worldShiftX);
+                int sliceMaxZ = Math.min(sizeMax.getZ(), chunkZ * CHUNK_SIZE + CHUNK_SIZE - 1 - worldShiftZ);
+
+                slices.add(new CuboidRegion(BlockVector3.at(sliceMinX, sizeMin.getY(), sliceMinZ), BlockVector3.at(sliceMaxX, sizeMax.getY(), sliceMaxZ)));
+            }
+        }
+
+        // バイオームを持つ場合は、空気のみでもバイオームを生成する必要があるため除外しない
+        if (!clipboard.hasBiomes()) {
+            slices = forkJoinPool.invoke(new NonEmptySliceTask(clipboard, slices, 0, slices.size()));
+        }
+
+        List<BlockVector3> spawnPositions = getSpawnPositions(markerSet, origin);
+
+        return slices.stream()
+                .sorted(Comparator.comparingLong(slice -> getDistanceSq(slice, spawnPositions)))
+                .toList();
+    }
+
+    /**
+     * 範囲内が空気のみで、エンティティも存在しないかどうか
+     *
+     * @param extent クリップボード
+     * @param region 範囲
+     * @return 空の場合はtrue
+     */
+    private static boolean isEmpty(Extent extent, Region region) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+
+        for (int x = min.getX(); x <= max.getX(); x++) {
+            for (int y = min.getY(); y <= max.getY(); y++) {
+                for (int z = min.getZ(); z <= max.getZ(); z++) {
+                    if (!extent.getBlock(BlockVector3.at(x, y, z)).getBlockType().getMaterial().isAir()) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return extent.getEntities(region).isEmpty();
+    }
+
+    /**
+     * スポーン地点のマーカーのクリップボード座標を取得
+     *
+     * @param markerSet マーカーの集まり
+     * @param origin    クリップボードの原点
+     * @return スポーン地点の座標のリスト
+     */
+    private static List<BlockVector3> getSpawnPositions(MapMarkerSet markerSet, BlockVector3 origin) {
+        return Arrays.stream(MapMarkerPoints.values())
+                .flatMap(point -> markerSet.makers().get(point.get()).stream())
+                .map(marker -> marker.getPosition().add(origin))
+                .toList();
+    }
+
+    /**
+     * 範囲の中心から最も近いスポーン地点までの水平距離の2乗を取得
+     *
+     * @param region         範囲
+     * @param spawnPositions スポーン地点の座標のリスト
+     * @return 距離の2乗、スポーン地点が無い場合は0
+     */
+    private static long getDistanceSq(Region region, List<BlockVector3> spawnPositions) {
+        BlockVector3 center = region.getCenter().toBlockPoint();
+        long minDistanceSq = spawnPositions.isEmpty() ? 0 : Long.MAX_VALUE;
+
+        for (BlockVector3 spawnPosition : spawnPositions) {
+            long dx = center.getX() - spawnPosition.getX();
+            long dz = center.getZ() - spawnPosition.getZ();
+            minDistanceSq = Math.min(minDistanceSq, dx * dx + dz * dz);
+        }
+
+        return minDistanceSq;
+    }
+
+    /**
+     * 分割範囲のうち、空気のみではない範囲を取得するタスク
+     *
+     * @author MORIMORI0317
+     */
+    private static class NonEmptySliceTask extends RecursiveTask<List<Region>> {
+
+        /**
+         * 確認対象のクリップボード
+         */
+        private final transient Extent clipboard;
+
+        /**
+         * 分割範囲のリスト
+         */
+        private final transient List<Region> slices;
+
+        /**
+         * 確認開始位置
+         */
+        private final int start;
+
+        /**
+         * 確認終了位置 (この位置を含まない)
+         */
+        private final int end;
+
+        /**
+         * コンストラクタ
+         *
+         * @param clipboard クリップボード
+         * @param slices    分割範囲のリスト
+         * @param start     確認開始位置
+         * @param end       確認終了位置 (この位置を含まない)
+         */
+        NonEmptySliceTask(Extent clipboard, List<Region> slices, int start, int end) {
+            this.clipboard = clipboard;
+            this.slices = slices;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Region> compute() {
+            if (this.end - this.start <= CHECK_BATCH_SIZE) {
+                List<Region> nonEmptySlices = new ArrayList<>(this.end - this.start);
+
+                for (Region slice : this.slices.subList(this.start, this.end)) {
+                    if (!isEmpty(this.clipboard, slice)) {
+                        nonEmptySlices.add(slice);
+                    }
+                }
+
+                return nonEmptySlices;
+            }
+
+            int middle = (this.start + this.end) >>> 1;
+            NonEmptySliceTask left = new NonEmptySliceTask(this.clipboard, this.slices, this.start, middle);
+            NonEmptySliceTask right = new NonEmptySliceTask(this.clipboard, this.slices, middle, this.end);
+            left.fork();
+            List<Region> rightSlices = right.compute();
+            List<Region> leftSlices = left.join();
+
+            // 左側を先に追加することで、元の順番を保つ
+            List<Region> nonEmptySlices = new ArrayList<>(leftSlices.size() + rightSlices.size());
+            nonEmptySlices.addAll(leftSlices);
+            nonEmptySlices.addAll(rightSlices);
+            return nonEmptySlices;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.shortlifeplugin.SLConfig;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 構造物生成の分割タスクを、Tickごとの時間予算内で実行するスケジューラー<br/>
+ * 1Tickで使用する時間は、コンフィグの予算とサーバーの平均Tick時間から求めた余裕の小さい方<br/>
+ * 予算が無い場合でも、生成が止まらないように1Tickに最低1つは実行する<br/>
+ * 複数の生成がある場合は、優先度の最も高い生成の分割タスクから実行し、同じ優先度の生成は1つずつ交互に実行する<br/>
+ * 生成のCompletableFutureがキャンセルされた場合は、残りの分割タスクを実行せずに破棄する<br/>
+ * このクラスはスレッドセーフではないので、サーバーTickからアクセスしてください。
+ *
+ * @author MORIMORI0317
+ */
+public class SchematicPasteScheduler {
+
+    /**
+     * 1Tickの目標時間 (ms)
+     */
+    private static final double TARGET_TICK_TIME = 50d;
+
+    /**
+     * 平均実行時間の更新に使用する重み
+     */
+    private static final double AVERAGE_WEIGHT = 0.1d;
+
+    /**
+     * 実行待ちの生成
+     */
+    private final Deque<PasteJob> jobs = new ArrayDeque<>();
+
+    /**
+     * 現在までのTick数
+     */
+    private long tickCount;
+
+    /**
+     * 実行したタスクの総数
+     */
+    private long totalTaskCount;
+
+    /**
+     * タスクの実行に使用した総時間 (ns)
+     */
+    private long totalTaskNanos;
+
+    /**
+     * 前回のTickで実行したタスク数
+     */
+    private int lastTickTaskCount;
+
+    /**
+     * 前回のTickで使用した時間 (ns)
+     */
+    private long lastTickNanos;
+
+    /**
+     * タスク1つあたりの平均実行時間 (ns)<br/>
+     * 予算を超えそうなタスクを次のTickに回すために使用する
+     */
+    private double averageTaskNanos;
+
+    /**
+     * 分割タスクの集まりを生成として登録する
+     *
+     * @param sliceTasks 生成順の分割タスク
+     * @param priority   優先度の取得元 (値が大きいほど優先)
+     * @return 全ての分割タスクが完了するCompletableFuture
+     */
+    public CompletableFuture<Void> schedule(@NotNull List<Runnable> sliceTasks, @NotNull DoubleSupplier priority) {
+        PasteJob job = new PasteJob(sliceTasks.iterator(), priority, new CompletableFuture<>());
+
+        if (job.sliceTasks().hasNext()) {
+            // キャンセルされた生成は、別スレッドから実行待ちを変更しないようにTick処理で取り除く
+            this.jobs.addLast(job);
+        } else {
+            job.future().complete(null);
+        }
+
+        return job.future();
+    }
+
+    /**
+     * Tick処理<br/>
+     * 予算内で実行待ちのタスクを実行する
+     */
+    public void tick() {
+        this.tickCount++;
+        this.lastTickTaskCount = 0;
+        this.lastTickNanos = 0;
+
+        long budgetNanos = getTickBudgetNanos();
+        long startTime = System.nanoTime();
+        long elapsed = 0;
+        PasteJob job;
+
+        // キャンセル済みの生成を実行待ちから取り除く
+        this.jobs.removeIf(pasteJob -> pasteJob.future().isDone());
+
+        // 優先度はTickの開始時に一度だけ取得する
+        Map<PasteJob, Double> priorities = new HashMap<>();
+        this.jobs.forEach(pasteJob -> priorities.put(pasteJob, pasteJob.priority().getAsDouble()));
+
+        // 1つ目は必ず実行し、以降は平均実行時間分の余裕がある場合のみ実行する
+        while ((this.lastTickTaskCount == 0 || elapsed + (long) this.averageTaskNanos <= budgetNanos) && (job = pollHighestPriority(priorities)) != null) {
+
+            // キャンセル済みの生成は破棄
+            if (job.future().isDone()) {
+                continue;
+            }
+
+            long taskStartTime = System.nanoTime();
+
+            try {
+                job.sliceTasks().next().run();
+            } catch (RuntimeException e) {
+                job.future().completeExceptionally(e);
+            } finally {
+                long taskNanos = System.nanoTime() - taskStartTime;
+                recordTask(taskNanos);
+                elapsed = System.nanoTime() - startTime;
+            }
+
+            if (!job.future().isDone()) {
+                if (job.sliceTasks().hasNext()) {
+                    this.jobs.addLast(job);
+                } else {
+                    job.future().complete(null);
+                }
+            }
+        }
+
+        this.lastTickNanos = elapsed;
+    }
+
+    /**
+     * 最も優先度の高い生成を取り出す<br/>
+     * 優先度が同じ場合は、実行待ちの先頭に近い生成を取り出す
+     *
+     * @param priorities 生成と優先度のマップ
+     * @return 生成、実行待ちが無い場合はnull
+     */
+    @Nullable
+    private PasteJob pollHighestPriority(Map<PasteJob, Double> priorities) {
+        PasteJob highest = null;
+        double highestPriority = Double.NEGATIVE_INFINITY;
+
+        for (PasteJob job : this.jobs) {
+            double priority = priorities.getOrDefault(job, MatchMapLoadScheduler.BACKGROUND_PRIORITY);
+
+            if (highest == null || priority > highestPriority) {
+                highest = job;
+                highestPriority = priority;
+            }
+        }
+
+        if (highest != null) {
+            this.jobs.remove(highest);
+        }
+
+        return highest;
+    }
+
+    /**
+     * このTickで使用できる時間を取得
+     *
+     * @return 使用できる時間 (ns)
+     */
+    private long getTickBudgetNanos() {
+        double headroom = Math.max(TARGET_TICK_TIME - Bukkit.getAverageTickTime(), 0d);
+        double budget = Math.min(SLConfig.getSchematicPasteBudget(), headroom);
+        return (long) (budget * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private void recordTask(long taskNanos) {
+        this.lastTickTaskCount++;
+        this.totalTaskCount++;
+        this.totalTaskNanos += taskNanos;
+
+        if (this.totalTaskCount == 1) {
+            this.averageTaskNanos = taskNanos;
+        } else {
+            this.averageTaskNanos += (taskNanos - this.averageTaskNanos) * AVERAGE_WEIGHT;
+        }
+    }
+
+    /**
+     * 現在までのTick数を取得
+     *
+     * @return Tick数
+     */
+    public long getTickCount() {
+        return this.tickCount;
+    }
+
+    /**
+     * 実行待ちの生成数を取得
+     *
+     * @return 生成数
+     */
+    public int getPendingJobCount() {
+        // キャンセル済みで、まだ取り除かれていない生成は含めない
+        return (int) this.jobs.stream()
+                .filter(job -> !job.future().isDone())
+                .count();
+    }
+
+    /**
+     * 実行したタスクの総数を取得
+     *
+     * @return タスク数
+     */
+    public long getTotalTaskCount() {
+        return this.totalTaskCount;
+    }
+
+    /**
+     * タスクの実行に使用した総時間を取得
+     *
+     * @return 時間 (ns)
+     */
+    public long getTotalTaskNanos() {
+        return this.totalTaskNanos;
+    }
+
+    /**
+     * 前回のTickで実行したタスク数を取得
+     *
+     * @return タスク数
+     */
+    public int getLastTickTaskCount() {
+        return this.lastTickTaskCount;
+    }
+
+    /**
+     * 前回のTickで使用した時間を取得
+     *
+     * @return 時間 (ns)
+     */
+    public long getLastTickNanos() {
+        return this.lastTickNanos;
+    }
+
+    /**
+     * タスク1つあたりの平均実行時間を取得
+     *
+     * @return 時間 (ns)
+     */
+    public double getAverageTaskNanos() {
+        return this.averageTaskNanos;
+    }
+
+    /**
+     * 実行待ちの生成
+     *
+     * @param sliceTasks 残りの分割タスク
+     * @param priority   優先度の取得元
+     * @param future     全ての分割タスクが完了するCompletableFuture
+     * @author MORIMORI0317
+     */
+    private record PasteJob(@NotNull Iterator<Runnable> sliceTasks, @NotNull DoubleSupplier priority, @NotNull CompletableFuture<Void> future) {
+    }
+}
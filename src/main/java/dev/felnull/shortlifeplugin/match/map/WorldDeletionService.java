@@ -0,0 +1,258 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.fnjl.util.FNDataUtil;
+import dev.felnull.shortlifeplugin.MsgHandler;
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static dev.felnull.shortlifeplugin.match.map.MatchMapHandler.WORLD_NAME_PREFIX;
+
+/**
+ * 試合用ワールドフォルダーを別スレッドで削除するクラス<br/>
+ * フォルダーはゴミ箱フォルダーへ名前を変更してから、削除用スレッドで少しずつ削除する<br/>
+ * 終了時に削除しきれなかったフォルダーは、次回起動時に削除する
+ *
+ * @author MORIMORI0317
+ */
+public class WorldDeletionService {
+
+    /**
+     * ゴミ箱フォルダー名
+     */
+    private static final String TRASH_FOLDER_NAME = ".trash";
+
+    /**
+     * 終了時に削除の完了を待機する時間 (秒)
+     */
+    private static final long SHUTDOWN_WAIT_TIME = 10;
+
+    /**
+     * 削除を行うExecutor
+     */
+    private final ExecutorService deletionExecutor = Executors.newSingleThreadExecutor(
+            new BasicThreadFactory.Builder().namingPattern("map-world-deletion-worker-%d").daemon(true).build());
+
+    /**
+     * ファイル操作の速度制限
+     */
+    @NotNull
+    private final IoRateLimiter ioRateLimiter;
+
+    /**
+     * コンストラクタ
+     *
+     * @param ioRateLimiter ファイル操作の速度制限
+     */
+    protected WorldDeletionService(@NotNull IoRateLimiter ioRateLimiter) {
+        this.ioRateLimiter = ioRateLimiter;
+    }
+
+    /**
+     * 試合用ワールドフォルダーに残ったフォルダーを全て削除する<br/>
+     * 起動時に呼び出してください。
+     */
+    public void sweep() {
+        moveAllToTrash();
+
+        // 前回削除しきれなかったフォルダーも含めて削除
+        File[] trashFolders = getTrashFolder().listFiles();
+
+        if (trashFolders != null) {
+            for (File trashFolder : trashFolders) {
+                this.deletionExecutor.execute(() -> deleteTree(trashFolder));
+            }
+        }
+    }
+
+    /**
+     * ワールドフォルダーを削除する<br/>
+     * ロックを取得できる場合はすぐにゴミ箱へ移動し、取得できない場合は削除用スレッドで取得してから移動する
+     *
+     * @param worldFolder   ワールドフォルダー
+     * @param worldFileLock ワールドファイルの操作用ロック
+     */
+    public void delete(@NotNull File worldFolder, @NotNull Lock worldFileLock) {
+        if (worldFileLock.tryLock()) {
+            File trashedFolder;
+
+            try {
+                trashedFolder = moveToTrash(worldFolder);
+            } finally {
+                worldFileLock.unlock();
+            }
+
+            if (trashedFolder != null) {
+                this.deletionExecutor.execute(() -> deleteTree(trashedFolder));
+            }
+        } else {
+            this.deletionExecutor.execute(() -> {
+                File trashedFolder;
+
+                worldFileLock.lock();
+                try {
+                    trashedFolder = moveToTrash(worldFolder);
+                } finally {
+                    worldFileLock.unlock();
+                }
+
+                if (trashedFolder != null) {
+                    deleteTree(trashedFolder);
+                }
+            });
+        }
+    }
+
+    /**
+     * ロックが不要なフォルダーを削除する<br/>
+     * すぐにゴミ箱へ移動し、削除用スレッドで削除する
+     *
+     * @param folder フォルダー
+     */
+    public void delete(@NotNull File folder) {
+        File trashedFolder = moveToTrash(folder);
+
+        if (trashedFolder != null) {
+            this.deletionExecutor.execute(() -> deleteTree(trashedFolder));
+        }
+    }
+
+    /**
+     * フォルダーを現在のスレッドで削除する<br/>
+     * 削除後に同じ場所へ書き込む場合に使用し、Tick同期では呼び出さないでください。
+     *
+     * @param folder フォルダー
+     * @throws IOException 削除に失敗
+     */
+    public void deleteNow(@NotNull File folder) throws IOException {
+        if (folder.exists()) {
+            walkDelete(folder);
+        }
+    }
+
+    /**
+     * 削除処理を停止する<br/>
+     * 削除しきれなかったフォルダーは次回起動時に削除する
+     */
+    public void shutdown() {
+        moveAllToTrash();
+
+        this.deletionExecutor.shutdown();
+        try {
+            if (!this.deletionExecutor.awaitTermination(SHUTDOWN_WAIT_TIME, TimeUnit.SECONDS)) {
+                this.deletionExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.deletionExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * ゴミ箱フォルダー以外の全ての試合用ワールドフォルダーをゴミ箱フォルダーへ移動する
+     */
+    private void moveAllToTrash() {
+        File[] folders = new File(WORLD_NAME_PREFIX).listFiles();
+
+        if (folders != null) {
+            for (File folder : folders) {
+                if (!TRASH_FOLDER_NAME.equals(folder.getName())) {
+                    moveToTrash(folder);
+                }
+            }
+        }
+    }
+
+    /**
+     * フォルダーをゴミ箱フォルダーへ移動する<br/>
+     * ゴミ箱フォルダーへ移動できない場合(別のファイルシステムなど)は、同じフォルダー内で別の名前に変更する<br/>
+     * 元の場所をすぐに再利用できるように、元の場所のまま削除用スレッドへ渡すことはしない
+     *
+     * @param folder フォルダー
+     * @return 移動後のフォルダー、存在しないか移動できなかった場合はnull
+     */
+    @Nullable
+    private File moveToTrash(@NotNull File folder) {
+        if (!folder.exists()) {
+            return null;
+        }
+
+        File trashFolder = getTrashFolder();
+        FNDataUtil.wishMkdir(trashFolder);
+        // 接尾辞で判別しているフォルダーもあるため、元の名前の後ろには付け加えない
+        String trashedName = UUID.randomUUID() + "_" + folder.getName();
+
+        // Tick同期で呼ばれる場合があるため、待機せずに記録のみ行う
+        this.ioRateLimiter.recordOperation();
+
+        try {
+            File trashedFolder = new File(trashFolder, trashedName);
+            Files.move(folder.toPath(), trashedFolder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return trashedFolder;
+        } catch (IOException e) {
+            SLUtils.getLogger().warning(String.format("ワールドフォルダー(%s)をゴミ箱へ移動できませんでした: %s", folder.getName(), e));
+        }
+
+        try {
+            File trashedFolder = new File(folder.getAbsoluteFile().getParentFile(), trashedName);
+            Files.move(folder.toPath(), trashedFolder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return trashedFolder;
+        } catch (IOException e) {
+            // 名前も変更できない場合は削除せず残す
+            SLUtils.reportError(e, MsgHandler.get("system-map-folder-deletion-failed"));
+            return null;
+        }
+    }
+
+    private void deleteTree(@NotNull File folder) {
+        try {
+            walkDelete(folder);
+        } catch (NoSuchFileException | InterruptedIOException e) {
+            // 既に削除済みか、終了処理中のため次回起動時に削除する
+        } catch (IOException e) {
+            SLUtils.reportError(e, MsgHandler.get("system-map-deletion-failed"));
+        }
+    }
+
+    private void walkDelete(@NotNull File folder) throws IOException {
+        Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException();
+                }
+
+                ioRateLimiter.acquireOperation();
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+
+                ioRateLimiter.acquireOperation();
+                Files.deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private File getTrashFolder() {
+        return new File(WORLD_NAME_PREFIX + TRASH_FOLDER_NAME);
+    }
+}
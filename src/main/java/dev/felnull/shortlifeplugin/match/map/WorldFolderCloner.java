@@ -0,0 +1,292 @@
+package dev.felnull.shortlifeplugin.match.map;
+
+import dev.felnull.shortlifeplugin.utils.SLUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.codehaus.plexus.util.FileUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ワールドフォルダーを複製するクラス<br/>
+ * ファイルシステムに応じて、リフリンク(コピーオンライト)、通常のコピーの順で利用可能な方法を自動で選択する<br/>
+ * 方法は複製元と複製先のファイルシステムの組み合わせごとに一度だけ確認し、失敗した場合は通常のコピーへ切り替える
+ *
+ * @author MORIMORI0317
+ */
+public class WorldFolderCloner {
+
+    /**
+     * コピー時に一度に転送するサイズ
+     */
+    private static final long TRANSFER_SIZE = 1024 * 1024 * 8;
+
+    /**
+     * リフリンクによる複製の待機時間 (秒)
+     */
+    private static final long REFLINK_TIMEOUT = 60;
+
+    /**
+     * ファイル操作の速度制限
+     */
+    @NotNull
+    private final IoRateLimiter ioRateLimiter;
+
+    /**
+     * 複製元と複製先のファイルシステムの組み合わせと複製方法のマップ
+     */
+    private final Map<Pair<FileStore, FileStore>, CloneStrategy> strategies = new ConcurrentHashMap<>();
+
+    /**
+     * 複製した回数
+     */
+    private final AtomicLong cloneCount = new AtomicLong();
+
+    /**
+     * 複製に使用した総時間 (ns)
+     */
+    private final AtomicLong totalCloneNanos = new AtomicLong();
+
+    /**
+     * 前回の複製に使用した時間 (ns)
+     */
+    private final AtomicLong lastCloneNanos = new AtomicLong();
+
+    /**
+     * コンストラクタ
+     *
+     * @param ioRateLimiter ファイル操作の速度制限
+     */
+    protected WorldFolderCloner(@NotNull IoRateLimiter ioRateLimiter) {
+        this.ioRateLimiter = ioRateLimiter;
+    }
+
+    /**
+     * ワールドフォルダーを複製する
+     *
+     * @param sourceFolder 複製元のフォルダー
+     * @param targetFolder 複製先のフォルダー (存在しないこと)
+     * @return 使用した複製方法
+     * @throws IOException 複製に失敗
+     */
+    public CloneStrategy clone(@NotNull File sourceFolder, @NotNull File targetFolder) throws IOException {
+        long startTime = System.nanoTime();
+
+        Path source = sourceFolder.toPath();
+        Path target = targetFolder.toPath();
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Pair<FileStore, FileStore> fileStores = Pair.of(Files.getFileStore(source), Files.getFileStore(getExistingParent(target)));
+        CloneStrategy strategy = this.strategies.computeIfAbsent(fileStores, stores -> probeStrategy(target, stores.getLeft().equals(stores.getRight())));
+
+        if (strategy == CloneStrategy.REFLINK && !reflink(source, target)) {
+            // 割り込まれた場合は中断
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("ワールドフォルダーの複製が中断されました");
+            }
+
+            // リフリンクに失敗した場合は、以降このファイルシステムの組み合わせでは使用しない
+            FileUtils.deleteDirectory(targetFolder);
+            strategy = CloneStrategy.COPY;
+            this.strategies.put(fileStores, strategy);
+        }
+
+        if (strategy == CloneStrategy.COPY) {
+            copyTree(source, target);
+        }
+
+        long cloneNanos = System.nanoTime() - startTime;
+        this.cloneCount.incrementAndGet();
+        this.totalCloneNanos.addAndGet(cloneNanos);
+        this.lastCloneNanos.set(cloneNanos);
+
+        SLUtils.getLogger().info(String.format("ワールドフォルダー(%s)の複製完了: %s, %.1fms", targetFolder.getName(), strategy.name(), cloneNanos / 1_000_000d));
+        return strategy;
+    }
+
+    /**
+     * 複製した回数を取得
+     *
+     * @return 回数
+     */
+    public long getCloneCount() {
+        return this.cloneCount.get();
+    }
+
+    /**
+     * 複製に使用した総時間を取得
+     *
+     * @return 時間 (ns)
+     */
+    public long getTotalCloneNanos() {
+        return this.totalCloneNanos.get();
+    }
+
+    /**
+     * 前回の複製に使用した時間を取得
+     *
+     * @return 時間 (ns)
+     */
+    public long getLastCloneNanos() {
+        return this.lastCloneNanos.get();
+    }
+
+    /**
+     * 利用可能な複製方法を確認する
+     *
+     * @param target        複製先
+     * @param sameFileStore 複製元と複製先が同じファイルシステムかどうか
+     * @return 複製方法
+     */
+    private CloneStrategy probeStrategy(Path target, boolean sameFileStore) {
+        if (!SystemUtils.IS_OS_LINUX || !sameFileStore) {
+            return CloneStrategy.COPY;
+        }
+
+        Path probeFolder = getExistingParent(target);
+        Path probeSource = null;
+        Path probeTarget = probeFolder.resolve("clone_probe_" + System.nanoTime());
+
+        try {
+            probeSource = Files.createTempFile(probeFolder, "clone_probe_", ".tmp");
+
+            return reflink(probeSource, probeTarget) ? CloneStrategy.REFLINK : CloneStrategy.COPY;
+        } catch (IOException | SecurityException e) {
+            return CloneStrategy.COPY;
+        } finally {
+            try {
+                Files.deleteIfExists(probeTarget);
+                if (probeSource != null) {
+                    Files.deleteIfExists(probeSource);
+                }
+            } catch (IOException e) {
+                SLUtils.getLogger().warning(String.format("複製方法の確認用ファイルの削除に失敗: %s", e));
+            }
+        }
+    }
+
+    /**
+     * cpコマンドでリフリンクによる複製を行う
+     *
+     * @param source 複製元
+     * @param target 複製先
+     * @return 成功した場合はtrue
+     */
+    private boolean reflink(Path source, Path target) {
+        if (!SystemUtils.IS_OS_LINUX) {
+            return false;
+        }
+
+        // リフリンクはデータを書き込まないため、1回の操作として扱う
+        try {
+            this.ioRateLimiter.acquireOperation();
+        } catch (InterruptedIOException e) {
+            return false;
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder("cp", "-R", "--reflink=always", source.toString(), target.toString());
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+
+        Process process = null;
+
+        try {
+            process = processBuilder.start();
+
+            if (!process.waitFor(REFLINK_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void copyTree(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                ioRateLimiter.acquireOperation();
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("ワールドフォルダーの複製が中断されました");
+                }
+
+                ioRateLimiter.acquireOperation();
+                transferCopy(file, target.resolve(source.relativize(file)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void transferCopy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            long chunkSize = this.ioRateLimiter.limitChunkSize(TRANSFER_SIZE);
+
+            while (position < size) {
+                long transferSize = Math.min(chunkSize, size - position);
+                this.ioRateLimiter.acquireBytes(transferSize);
+
+                long transferred = in.transferTo(position, transferSize, out);
+
+                // 途中でファイルが縮んだ場合
+                if (transferred <= 0) {
+                    break;
+                }
+
+                position += transferred;
+            }
+        }
+    }
+
+    private Path getExistingParent(Path path) {
+        Path parent = path.toAbsolutePath().getParent();
+
+        while (parent != null && !Files.isDirectory(parent)) {
+            parent = parent.getParent();
+        }
+
+        return parent == null ? path.toAbsolutePath().getRoot() : parent;
+    }
+
+    /**
+     * 複製方法
+     *
+     * @author MORIMORI0317
+     */
+    public enum CloneStrategy {
+
+        /**
+         * リフリンク(コピーオンライト)で複製
+         */
+        REFLINK,
+
+        /**
+         * 全てのファイルをコピーで複製
+         */
+        COPY
+    }
+}
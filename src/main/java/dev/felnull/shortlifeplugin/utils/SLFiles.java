@@ -31,6 +31,42 @@ public final class SLFiles {
         return new File(SLUtils.getSLPlugin().getDataFolder(), "schematics");
     }
 
+    /**
+     * マーカーのインデックスフォルダ
+     *
+     * @return マーカーのインデックスフォルダのFile
+     */
+    public static File markerIndexFolder() {
+        return new File(SLUtils.getSLPlugin().getDataFolder(), "marker_index");
+    }
+
+    /**
+     * 事前生成済みマップフォルダ
+     *
+     * @return 事前生成済みマップフォルダのFile
+     */
+    public static File bakedMapFolder() {
+        return new File(SLUtils.getSLPlugin().getDataFolder(), "baked_maps");
+    }
+
+    /**
+     * 試合用ワールドのテンプレートフォルダ
+     *
+     * @return 試合用ワールドのテンプレートフォルダのFile
+     */
+    public static File worldTemplateFolder() {
+        return new File(SLUtils.getSLPlugin().getDataFolder(), "world_template");
+    }
+
+    /**
+     * 試合用マップの読み込み時間の統計の書き出しJson
+     *
+     * @return 読み込み時間の統計の書き出しJsonのFile
+     */
+    public static File mapLoadMetricsJson() {
+        return new File(SLUtils.getSLPlugin().getDataFolder(), "map_load_metrics.json");
+    }
+
     /**
      * ホモ特有のTMPフォルダ
      *